@@ -0,0 +1,291 @@
+package maxflow;
+
+import java.io.PrintStream;
+import java.util.Properties;
+
+/**
+ * AdaptiveMaxFlow
+ * class choosing a maxflow algorithm for each net based on its
+ * {@link GraphStatistics}. Running time of each algorithm is predicted as
+ * a calibrated factor times an estimate of the algorithm's work; the
+ * applicable algorithm with the smallest prediction is chosen.
+ * Factors are obtained by {@link #calibrate(Iterable)} on a set of sample nets.
+ */
+public final class AdaptiveMaxFlow implements MaxFlow {
+
+	private static final String MODEL_KEY = "engine.%s.nanosPerWork";
+	private static final String FALLBACK_NOTE = "; ran DINIC, net is not unit capacity bipartite";
+
+	/**
+	 * Available maxflow algorithms
+	 */
+	public enum Engine {
+		DINIC {
+			@Override
+			boolean isApplicable(GraphStatistics stats) {
+				return true;
+			}
+
+			@Override
+			double estimateWork(GraphStatistics stats) {
+				//matrix scans per phase plus a column scan per node of every path
+				double n = stats.getNumberOfNodes();
+				double pathWork = estimatePaths(stats) * estimatePathLength(stats) * n;
+				return estimatePhases(stats) * (n * n + pathWork);
+			}
+
+			@Override
+			MaxFlow create() {
+				return new DinicMaxFlow();
+			}
+		},
+		DINIC_DYNAMIC_TREES {
+			@Override
+			boolean isApplicable(GraphStatistics stats) {
+				return true;
+			}
+
+			@Override
+			double estimateWork(GraphStatistics stats) {
+				//matrix scans per phase plus O(log n) tree operations per level graph edge
+				double n = stats.getNumberOfNodes();
+				double treeWork = stats.getNumberOfEdges() * Math.log(n + 1) / Math.log(2);
+				return estimatePhases(stats) * (n * n + treeWork);
+			}
+
+			@Override
+			MaxFlow create() {
+				return new LinkCutDinicMaxFlow();
+			}
+		},
+		HOPCROFT_KARP {
+			@Override
+			boolean isApplicable(GraphStatistics stats) {
+				return stats.isUnitCapacityBipartite();
+			}
+
+			@Override
+			double estimateWork(GraphStatistics stats) {
+				//matrix scan for adjacency plus phases on compact adjacency
+				double n = stats.getNumberOfNodes();
+				return n * n + stats.getNumberOfEdges() * Math.sqrt(n);
+			}
+
+			@Override
+			MaxFlow create() {
+				return new HopcroftKarpMaxFlow();
+			}
+		};
+
+		abstract boolean isApplicable(GraphStatistics stats);
+
+		abstract double estimateWork(GraphStatistics stats);
+
+		abstract MaxFlow create();
+
+		/**
+		 * Estimates number of blocking flow phases
+		 */
+		private static double estimatePhases(GraphStatistics stats) {
+			double phases = Math.min(stats.getNumberOfNodes(), Math.sqrt(stats.getNumberOfEdges())
+					+ Math.log(stats.getMaxCapacity() + 1.0) / Math.log(2));
+			return Math.max(1, phases);
+		}
+
+		/**
+		 * Estimates number of augmenting paths per phase, which is bounded
+		 * by the edges leaving source and entering sink
+		 */
+		private static double estimatePaths(GraphStatistics stats) {
+			return Math.max(1, stats.getTerminalDegree());
+		}
+
+		/**
+		 * Estimates length of augmenting paths: depth of the first level
+		 * graph, on grid-like nets at least the grid diameter that paths of
+		 * later phases approach
+		 */
+		private static double estimatePathLength(GraphStatistics stats) {
+			double gridDiameter = stats.getGridFraction() * Math.sqrt(stats.getNumberOfNodes());
+			return Math.max(Math.max(1, stats.getSourceSinkDistance()), gridDiameter);
+		}
+	}
+
+	private final Engine override; //null if engine is chosen automatically
+	private final Properties model;
+	private final PrintStream log; //null if choices are not logged
+
+	private MaxFlow lastEngine;
+	private Net lastNet; //net lastEngine was chosen for
+	private String lastReason = "";
+
+	/**
+	 * Constructor of adaptive algorithm with uncalibrated model and without log
+	 */
+	public AdaptiveMaxFlow() {
+		this(null, new Properties(), null);
+	}
+
+	/**
+	 * Constructor of adaptive algorithm
+	 * @param override engine used for all nets, or {@code null} for automatic choice
+	 * @param model calibrated factors as returned by {@link #calibrate(Iterable)};
+	 * missing factors default to 1, i.e. predictions in work units
+	 * @param log stream where a line explaining each choice is printed, or {@code null}
+	 */
+	public AdaptiveMaxFlow(Engine override, Properties model, PrintStream log) {
+		if (model == null)
+			throw new NullPointerException("Model was not defined");
+		this.override = override;
+		this.model = model;
+		this.log = log;
+	}
+
+	@Override
+	public void computeMaxFlow(Net net) {
+		if (net == null)
+			throw new NullPointerException("Net was not defined");
+		lastEngine = choose(net).create();
+		lastNet = net;
+		lastEngine.computeMaxFlow(net);
+		noteFallback();
+	}
+
+	/**
+	 * Performs one phase; the engine is chosen again whenever the net
+	 * differs from the net of the previous call
+	 */
+	@Override
+	public void step(Net net) {
+		if (net == null)
+			throw new NullPointerException("Net was not defined");
+		if (lastEngine == null || net != lastNet) {
+			lastEngine = choose(net).create();
+			lastNet = net;
+		}
+		lastEngine.step(net);
+		noteFallback();
+	}
+
+	/**
+	 * Adds engine that actually ran to reason if chosen engine delegated
+	 * the net to another one
+	 */
+	private void noteFallback() {
+		if (lastEngine instanceof HopcroftKarpMaxFlow && ((HopcroftKarpMaxFlow) lastEngine).isFallbackUsed()
+				&& !lastReason.contains(FALLBACK_NOTE)) {
+			lastReason += FALLBACK_NOTE;
+			printLog();
+		}
+	}
+
+	/**
+	 * Chooses engine for net and logs the reason
+	 * @param net net to be solved
+	 * @return chosen engine
+	 */
+	public Engine choose(Net net) {
+		if (override != null) {
+			lastReason = String.format("engine %s (override)", override);
+			printLog();
+			return override;
+		}
+		GraphStatistics stats = new GraphStatistics(net);
+		Engine best = null;
+		double bestTime = Double.MAX_VALUE;
+		StringBuilder predictions = new StringBuilder();
+		for (Engine engine : Engine.values()) {
+			if (!engine.isApplicable(stats))
+				continue;
+			double time = getFactor(model, engine) * engine.estimateWork(stats);
+			if (isCalibrated(model, engine))
+				predictions.append(String.format(" %s %.3f ms", engine, time / 1e6));
+			else
+				predictions.append(String.format(" %s %.0f work units (uncalibrated)", engine, time));
+			if (time < bestTime) {
+				bestTime = time;
+				best = engine;
+			}
+		}
+		lastReason = String.format("engine %s: predicted%s; %s", best, predictions, stats);
+		printLog();
+		return best;
+	}
+
+	/**
+	 * Gets explanation of the last choice
+	 * @return reason of last choice
+	 */
+	public String getLastReason() {
+		return lastReason;
+	}
+
+	/**
+	 * Gets number of phases of the last computation
+	 * @return number of phases, or 0 if engine does not count phases
+	 */
+	public int getPhaseCount() {
+		if (lastEngine instanceof DinicMaxFlow)
+			return ((DinicMaxFlow) lastEngine).getPhaseCount();
+		if (lastEngine instanceof LinkCutDinicMaxFlow)
+			return ((LinkCutDinicMaxFlow) lastEngine).getPhaseCount();
+		if (lastEngine instanceof HopcroftKarpMaxFlow)
+			return ((HopcroftKarpMaxFlow) lastEngine).getPhaseCount();
+		return 0;
+	}
+
+	/**
+	 * Calibrates model by solving each net with every applicable engine.
+	 * Factor of an engine is the least squares fit of measured time
+	 * against estimated work. Flows of nets are cleared before each run.
+	 * Nets are iterated once and each net is solved by all engines before
+	 * the next one is requested, so a lazy iterable keeps only one net
+	 * in memory.
+	 * @param nets sample nets, e.g. the benchmark instances
+	 * @return calibrated model
+	 */
+	public static Properties calibrate(Iterable<Net> nets) {
+		Engine[] engines = Engine.values();
+		double[] timeWorkSum = new double[engines.length], workSquareSum = new double[engines.length];
+		for (Net net : nets) {
+			GraphStatistics stats = new GraphStatistics(net);
+			for (Engine engine : engines) {
+				if (!engine.isApplicable(stats))
+					continue;
+				net.getFlow().clear();
+				long startTime = System.nanoTime();
+				engine.create().computeMaxFlow(net);
+				double time = System.nanoTime() - startTime;
+				double work = engine.estimateWork(stats);
+				timeWorkSum[engine.ordinal()] += time * work;
+				workSquareSum[engine.ordinal()] += work * work;
+			}
+		}
+		Properties calibrated = new Properties();
+		for (Engine engine : engines)
+			if (workSquareSum[engine.ordinal()] > 0)
+				calibrated.setProperty(String.format(MODEL_KEY, engine.name()),
+						String.valueOf(timeWorkSum[engine.ordinal()] / workSquareSum[engine.ordinal()]));
+		return calibrated;
+	}
+
+	private static boolean isCalibrated(Properties model, Engine engine) {
+		return model.getProperty(String.format(MODEL_KEY, engine.name())) != null;
+	}
+
+	private static double getFactor(Properties model, Engine engine) {
+		String factor = model.getProperty(String.format(MODEL_KEY, engine.name()));
+		if (factor == null)
+			return 1;
+		try {
+			return Double.parseDouble(factor);
+		} catch (NumberFormatException e) {
+			throw new ArithmeticException("Bad model factor for " + engine);
+		}
+	}
+
+	private void printLog() {
+		if (log != null)
+			log.println(lastReason);
+	}
+}
@@ -0,0 +1,378 @@
+package maxflow;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.InputMismatchException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * class BatchShell
+ * implements non-interactive command line interface that solves maxflow
+ * for many net files in parallel and prints one result line per file
+ * contains main method
+ *
+ * Usage: BatchShell [-j threads] [-e engine] [-m model] [-calibrate model]
+ *                   [-u] [-c [-r ordering]] (file | glob | @listfile)...
+ *
+ * Maxflow algorithm is chosen by {@link AdaptiveMaxFlow} unless it is given
+ * by option -e. Option -m loads a model written by option -calibrate, which
+ * solves the given files with every applicable algorithm instead of
+ * printing results. Option -u reads edges as undirected, see
+ * {@link UndirectedGraphWithFlow}. Option -c loads each file into a
+ * {@link CompactGraph} and solves it by {@link CompactDinicMaxFlow}, so no
+ * n x n matrix is built and the number of nodes is not limited; in this
+ * mode an edge given more than once gets the sum of its capacities, see
+ * {@link Shell#loadCompactGraph(String)}. Option -r, which requires -c,
+ * renumbers nodes before solving by an ordering of
+ * {@link RenumberedMaxFlow}: bfs, rcm (or reverse_cuthill_mckee) or
+ * degree; time_ms includes renumbering, whose share is reported in the
+ * message, so runs with and without -r show its impact.
+ *
+ * Output lines are tab separated:
+ * file status flow time_ms phases allocated_bytes message
+ * where allocated_bytes is the heap memory allocated by the worker thread
+ * while loading and solving the file, an upper bound of the file's memory
+ * peak (-1 if the JVM cannot measure it), and message contains the reason
+ * for the algorithm choice
+ */
+public final class BatchShell {
+
+	private static final String HEADER = "#file\tstatus\tflow\ttime_ms\tphases\tallocated_bytes\tmessage";
+
+	/**
+     * Utility class constructor preventing instantiation.
+     */
+    private BatchShell() {
+    	throw new UnsupportedOperationException(
+                "Illegal call of utility class constructor.");
+    }
+
+	/**
+     * Solves all given net files and prints results.
+     *
+     * @param args command-line arguments.
+	 * @throws IOException if list file or directory could not be read
+	 * @throws InterruptedException if waiting for workers was interrupted
+     */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int threads = Runtime.getRuntime().availableProcessors();
+		AdaptiveMaxFlow.Engine engine = null;
+		Properties model = new Properties();
+		String calibrationFile = null;
+		RenumberedMaxFlow.Ordering ordering = null;
+		boolean undirected = false;
+		boolean compact = false;
+		List<String> fileNames = new ArrayList<>();
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-j")) {
+				if (i+1 >= args.length) {
+					printError("Option -j requires number of threads");
+					return;
+				}
+				try {
+					threads = Integer.parseInt(args[++i]);
+				} catch (NumberFormatException e) {
+					printError("Number of threads must be Integer");
+					return;
+				}
+				if (threads < 1) {
+					printError("Number of threads must be positive");
+					return;
+				}
+			} else if (args[i].equals("-u")) {
+				undirected = true;
+			} else if (args[i].equals("-c")) {
+				compact = true;
+			} else if (args[i].equals("-e") || args[i].equals("-m") || args[i].equals("-calibrate")
+					|| args[i].equals("-r")) {
+				if (i+1 >= args.length) {
+					printError(String.format("Option %s requires an argument", args[i]));
+					return;
+				}
+				String option = args[i++];
+				if (option.equals("-e")) {
+					try {
+						engine = AdaptiveMaxFlow.Engine.valueOf(args[i].toUpperCase());
+					} catch (IllegalArgumentException e) {
+						printError("Unknown engine " + args[i]);
+						return;
+					}
+				} else if (option.equals("-r")) {
+					try {
+						ordering = RenumberedMaxFlow.Ordering.fromName(args[i]);
+					} catch (IllegalArgumentException e) {
+						printError("Unknown ordering " + args[i] + ", use bfs, rcm or degree");
+						return;
+					}
+				} else if (option.equals("-m")) {
+					try (InputStream in = Files.newInputStream(Paths.get(args[i]))) {
+						model.load(in);
+					} catch (IOException | IllegalArgumentException e) {
+						printError("Cannot read model " + args[i]);
+						return;
+					}
+				} else
+					calibrationFile = args[i];
+			} else
+				expandArgument(args[i], fileNames);
+		}
+		if (fileNames.isEmpty()) {
+			printError("Please give files with Net input data");
+			return;
+		}
+
+		if (compact && (engine != null || !model.isEmpty() || calibrationFile != null || undirected)) {
+			printError("Option -c cannot be combined with -e, -m, -calibrate or -u");
+			return;
+		}
+		if (ordering != null && !compact) {
+			printError("Option -r requires option -c");
+			return;
+		}
+
+		if (calibrationFile != null) {
+			calibrate(fileNames, calibrationFile, undirected);
+			return;
+		}
+
+		System.out.println(HEADER);
+		/* every worker keeps at most one net in memory,
+		 * so number of threads bounds memory consumption
+		 */
+		ExecutorService workers = Executors.newFixedThreadPool(threads);
+		AdaptiveMaxFlow.Engine override = engine;
+		RenumberedMaxFlow.Ordering nodeOrdering = ordering;
+		boolean undirectedEdges = undirected;
+		for (String fileName : fileNames)
+			if (compact)
+				workers.execute(() -> printResult(solveCompact(fileName, nodeOrdering)));
+			else
+				workers.execute(() -> printResult(solve(fileName, override, model, undirectedEdges)));
+		workers.shutdown();
+		workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Adds files denoted by {@code arg} to {@code fileNames}.
+	 * Argument is either a file name, a glob pattern in its last path element
+	 * or a list file prefixed with '@' that contains one file name per line.
+	 * @param arg command line argument
+	 * @param fileNames list to which file names are added
+	 * @throws IOException if list file or directory could not be read
+	 */
+	private static void expandArgument(String arg, List<String> fileNames) throws IOException {
+		if (arg.startsWith("@")) {
+			try (BufferedReader reader = Files.newBufferedReader(Paths.get(arg.substring(1)))) {
+				String line;
+				while ((line = reader.readLine()) != null)
+					if (!line.isBlank())
+						fileNames.add(line.trim());
+			}
+		} else if (arg.contains("*") || arg.contains("?") || arg.contains("[")) {
+			Path pattern = Paths.get(arg);
+			Path directory = pattern.getParent() == null ? Paths.get(".") : pattern.getParent();
+			List<String> matches = new ArrayList<>();
+			try (DirectoryStream<Path> stream =
+					Files.newDirectoryStream(directory, pattern.getFileName().toString())) {
+				for (Path file : stream)
+					if (Files.isRegularFile(file))
+						matches.add(file.toString());
+			}
+			matches.sort(null); //keep order of files deterministic
+			fileNames.addAll(matches);
+		} else
+			fileNames.add(arg);
+	}
+
+	/**
+	 * Solves all files sequentially with every applicable algorithm
+	 * and stores calibrated model.
+	 * @param fileNames names of the files with net data
+	 * @param modelFile name of the file model is written to
+	 * @param undirected {@code true} if edges are undirected
+	 * @throws IOException if model could not be written
+	 */
+	private static void calibrate(List<String> fileNames, String modelFile, boolean undirected)
+			throws IOException {
+		int[] loaded = new int[1];
+		//nets are loaded one at a time while calibration iterates
+		Iterable<Net> nets = () -> new Iterator<Net>() {
+			private final Iterator<String> files = fileNames.iterator();
+			private Net next = load();
+
+			private Net load() {
+				while (files.hasNext()) {
+					String fileName = files.next();
+					try {
+						Net net = Shell.loadNet(fileName, undirected);
+						loaded[0]++;
+						return net;
+					} catch (FileNotFoundException | RuntimeException e) {
+						printError(String.format("Skipping %s: %s", fileName, e.getMessage()));
+					}
+				}
+				return null;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public Net next() {
+				if (next == null)
+					throw new NoSuchElementException();
+				Net net = next;
+				next = null; //release net before loading the next one
+				next = load();
+				return net;
+			}
+		};
+		Properties model = AdaptiveMaxFlow.calibrate(nets);
+		try (OutputStream out = Files.newOutputStream(Paths.get(modelFile))) {
+			model.store(out, String.format("calibrated on %d nets", loaded[0]));
+		}
+	}
+
+	/**
+	 * Loads net from file and computes its maxflow.
+	 * @param fileName name of the file with net data
+	 * @param engine algorithm to use or {@code null} for automatic choice
+	 * @param model calibrated model for automatic choice
+	 * @param undirected {@code true} if edges are undirected
+	 * @return result line for the file
+	 */
+	private static String solve(String fileName, AdaptiveMaxFlow.Engine engine, Properties model,
+			boolean undirected) {
+		long allocatedBefore = allocatedBytes();
+		try {
+			Net net = Shell.loadNet(fileName, undirected);
+			AdaptiveMaxFlow maxFlow = new AdaptiveMaxFlow(engine, model, null);
+			long startTime = System.nanoTime();
+			maxFlow.computeMaxFlow(net);
+			long solveTime = System.nanoTime() - startTime;
+			long allocated = allocatedBefore == -1 ? -1 : allocatedBytes() - allocatedBefore;
+			if (!net.getFlow().isValidFlow())
+				return errorLine(fileName, "Calculation failed");
+			return String.format("%s\tOK\t%d\t%.3f\t%d\t%d\t%s", fileName,
+					net.getFlow().getTotalFlow(), solveTime / 1e6,
+					maxFlow.getPhaseCount(), allocated,
+					cleanMessage(maxFlow.getLastReason()));
+		} catch (FileNotFoundException e) {
+			return errorLine(fileName, "File Not Found");
+		} catch (InputMismatchException e) {
+			return errorLine(fileName, "Input Data must be Integers");
+		} catch (NoSuchElementException e) {
+			return errorLine(fileName, "Input Data incomplete");
+		} catch (ArithmeticException | ArrayIndexOutOfBoundsException e) {
+			return errorLine(fileName, e.getMessage());
+		} catch (OutOfMemoryError e) {
+			return errorLine(fileName, "Out of memory");
+		} catch (RuntimeException e) {
+			return errorLine(fileName, e.toString());
+		}
+	}
+
+	/**
+	 * Loads compact graph from file and computes its maxflow.
+	 * @param fileName name of the file with net data
+	 * @param ordering node ordering or {@code null} for no renumbering
+	 * @return result line for the file
+	 */
+	private static String solveCompact(String fileName, RenumberedMaxFlow.Ordering ordering) {
+		long allocatedBefore = allocatedBytes();
+		try {
+			CompactGraph graph = Shell.loadCompactGraph(fileName);
+			CompactDinicMaxFlow maxFlow;
+			RenumberedMaxFlow renumbered = ordering == null ? null : new RenumberedMaxFlow(ordering);
+			long flow;
+			long startTime = System.nanoTime();
+			if (renumbered == null) {
+				maxFlow = new CompactDinicMaxFlow();
+				flow = maxFlow.computeMaxFlow(graph);
+			} else {
+				flow = renumbered.computeMaxFlow(graph);
+				maxFlow = renumbered.getEngine();
+				graph = renumbered.getLastRenumbered();
+			}
+			long solveTime = System.nanoTime() - startTime;
+			long allocated = allocatedBefore == -1 ? -1 : allocatedBytes() - allocatedBefore;
+			if (!maxFlow.isValidFlow(graph))
+				return errorLine(fileName, "Calculation failed");
+			String message = String.format("compact dinic on %d nodes and %d arcs",
+					graph.getNumberOfNodes(), graph.getNumberOfArcs());
+			if (renumbered != null)
+				message += String.format("; renumbered by %s in %.3f ms", ordering,
+						renumbered.getLastRenumberingNanos() / 1e6);
+			return String.format("%s\tOK\t%d\t%.3f\t%d\t%d\t%s", fileName,
+					flow, solveTime / 1e6, maxFlow.getPhaseCount(), allocated,
+					cleanMessage(message));
+		} catch (FileNotFoundException e) {
+			return errorLine(fileName, "File Not Found");
+		} catch (InputMismatchException e) {
+			return errorLine(fileName, "Input Data must be Integers");
+		} catch (NoSuchElementException e) {
+			return errorLine(fileName, "Input Data incomplete");
+		} catch (ArithmeticException | ArrayIndexOutOfBoundsException e) {
+			return errorLine(fileName, e.getMessage());
+		} catch (OutOfMemoryError e) {
+			return errorLine(fileName, "Out of memory");
+		} catch (RuntimeException e) {
+			return errorLine(fileName, e.toString());
+		}
+	}
+
+	/**
+	 * Gets heap memory allocated by the current thread up to now; unlike
+	 * heap pool peaks it is not shared by the workers
+	 * @return allocated bytes, -1 if the JVM cannot measure it
+	 */
+	private static long allocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (!(threads instanceof com.sun.management.ThreadMXBean))
+			return -1;
+		com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+		if (!allocation.isThreadAllocatedMemorySupported() || !allocation.isThreadAllocatedMemoryEnabled())
+			return -1;
+		return allocation.getCurrentThreadAllocatedBytes();
+	}
+
+	private static String errorLine(String fileName, String msg) {
+		return String.format("%s\tERROR\t-\t-\t-\t-\t%s", fileName, cleanMessage(msg));
+	}
+
+	private static String cleanMessage(String msg) {
+		//keep line machine readable: message must not contain separators
+		return String.valueOf(msg).replaceAll("\\s+", " ");
+	}
+
+	private synchronized static void printResult(String line) {
+		System.out.println(line);
+	}
+
+	/**
+	 * prints error message into console
+	 * @param msg message string
+	 */
+	private synchronized static void printError(String msg) {
+        System.err.println("Error! "+ msg);
+	}
+}
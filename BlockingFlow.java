@@ -0,0 +1,20 @@
+package maxflow;
+
+/**
+ * A strategy computing blocking flows for {@link DinicMaxFlow}.
+ */
+public interface BlockingFlow {
+
+    /**
+     * Computes a blocking flow in the niveau graph and adds it to the flow
+     * of the net. Budget is checked between augmentations; when it is
+     * exhausted, the flow found so far is added, so the net's flow is
+     * always feasible.
+     * 
+     * @param net The net whose flow is updated.
+     * @param levelGraph The niveau graph of the residual net of {@code net}.
+     * @param budget limit of the computation
+     */
+    void compute(Net net, NiveauGraph levelGraph, SolveBudget budget);
+    
+}
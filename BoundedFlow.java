@@ -0,0 +1,52 @@
+package maxflow;
+
+/**
+ * BoundedFlow
+ * class describing result of a maxflow computation with limited budget:
+ * value of the feasible flow found and an upper bound of the maximum flow value
+ */
+public final class BoundedFlow {
+	private final int flowValue;
+	private final long upperBound;
+
+	/**
+	 * Constructor of result
+	 * @param flowValue value of feasible flow
+	 * @param upperBound capacity of a cut separating source and sink
+	 */
+	public BoundedFlow(int flowValue, long upperBound) {
+		if (upperBound < flowValue)
+			throw new ArithmeticException("Upper bound cannot be below flow value");
+		this.flowValue = flowValue;
+		this.upperBound = upperBound;
+	}
+
+	public int getFlowValue() {
+		return flowValue;
+	}
+
+	public long getUpperBound() {
+		return upperBound;
+	}
+
+	/**
+	 * Gets optimality gap
+	 * @return difference between upper bound and flow value
+	 */
+	public long getGap() {
+		return upperBound - flowValue;
+	}
+
+	/**
+	 * Checks if flow is maximal
+	 * @return {@code true} if and only if flow value reaches upper bound
+	 */
+	public boolean isOptimal() {
+		return upperBound == flowValue;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Flow is: %d, upper bound: %d", flowValue, upperBound);
+	}
+}
@@ -0,0 +1,505 @@
+package maxflow;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * CachedMaxFlow
+ * class implementing a result cache in front of another maxflow algorithm.
+ * Results are keyed by graph fingerprint, number of nodes, source and sink.
+ * Cache keeps flow value, minimum cut and (optionally) the full flow,
+ * evicts least recently used results when its size bound is exceeded and
+ * may move evicted results to an on-disk tier. Files of the disk tier are
+ * deleted when their results move back to memory or when the disk bound is
+ * exceeded; files left by earlier runs are read but neither counted nor
+ * pruned, so the caller has to purge the directory between runs.
+ */
+public final class CachedMaxFlow implements MaxFlow {
+
+	private static final int FILE_MAGIC = 0x4D464331; //"MFC1"
+
+	private final MaxFlow engine;
+	private final long maxBytes;
+	private final boolean storeFlow;
+	private final Path diskDirectory; //null if there is no disk tier
+	private final long maxDiskBytes;
+
+	//access ordered map, first entry is least recently used
+	private final LinkedHashMap<Key, Result> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long usedBytes;
+	//files written by this cache in order of writing, with their sizes
+	private final LinkedHashMap<Path, Long> diskFiles = new LinkedHashMap<>();
+	private long diskBytes;
+	private long hits, diskHits, valueOnlyHits, invalidHits, misses;
+
+	/**
+	 * Constructor of in-memory cache storing full flows
+	 * @param engine algorithm used on cache misses
+	 * @param maxBytes estimated memory bound of cached results
+	 */
+	public CachedMaxFlow(MaxFlow engine, long maxBytes) {
+		this(engine, maxBytes, true, null);
+	}
+
+	/**
+	 * Constructor of cache with unbounded disk tier
+	 * @param engine algorithm used on cache misses
+	 * @param maxBytes estimated memory bound of cached results
+	 * @param storeFlow {@code true} if full flow shall be cached, which is
+	 * needed to restore flow on hits
+	 * @param diskDirectory directory for evicted results, or {@code null}
+	 */
+	public CachedMaxFlow(MaxFlow engine, long maxBytes, boolean storeFlow, Path diskDirectory) {
+		this(engine, maxBytes, storeFlow, diskDirectory, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Constructor of cache
+	 * @param engine algorithm used on cache misses
+	 * @param maxBytes estimated memory bound of cached results
+	 * @param storeFlow {@code true} if full flow shall be cached, which is
+	 * needed to restore flow on hits
+	 * @param diskDirectory directory for evicted results, or {@code null}
+	 * @param maxDiskBytes bound of bytes in files written to disk tier,
+	 * oldest files are deleted first
+	 */
+	public CachedMaxFlow(MaxFlow engine, long maxBytes, boolean storeFlow, Path diskDirectory,
+			long maxDiskBytes) {
+		if (engine == null)
+			throw new NullPointerException("Engine was not defined");
+		if (maxBytes < 0 || maxDiskBytes < 0)
+			throw new ArithmeticException("Cache size cannot be negative");
+		this.engine = engine;
+		this.maxBytes = maxBytes;
+		this.storeFlow = storeFlow;
+		this.diskDirectory = diskDirectory;
+		this.maxDiskBytes = maxDiskBytes;
+	}
+
+	/**
+	 * Restores maximum flow from cache if possible, otherwise computes it
+	 * by the engine and caches the result.
+	 * The current flow of net is replaced on hits. Results without flow
+	 * cannot be restored: the engine solves net again, which is counted as
+	 * value-only hit, and the cached result is kept. A restored flow that is
+	 * not valid or differs in value from the cached one, e.g. after a
+	 * fingerprint collision, is counted as invalid hit: the engine solves
+	 * net and its result replaces the cached one.
+	 */
+	@Override
+	public void computeMaxFlow(Net net) {
+		if (net == null)
+			throw new NullPointerException("Net was not defined");
+		Key key = new Key(net);
+		Result result;
+		synchronized (this) {
+			result = find(key, true);
+		}
+		if (result != null && result.hasFlow()) {
+			result.restoreFlow(net);
+			if (net.getFlow().isValidFlow() && net.getFlow().getTotalFlow() == result.getFlowValue())
+				return;
+			synchronized (this) {
+				invalidHits++;
+			}
+			net.getFlow().clear();
+			engine.computeMaxFlow(net);
+			store(key, net);
+			return;
+		}
+		engine.computeMaxFlow(net);
+		if (result == null)
+			store(key, net);
+	}
+
+	@Override
+	public void step(Net net) {
+		engine.step(net);
+	}
+
+	/**
+	 * Looks up cached result for net
+	 * @param net net to look up
+	 * @return cached result or {@code null} if net was not solved before
+	 */
+	public synchronized Result lookup(Net net) {
+		return find(new Key(net), false);
+	}
+
+	/**
+	 * Finds cached result, moving results of disk tier to memory, and
+	 * counts the hit or miss
+	 * @param key key of net
+	 * @param flowNeeded {@code true} if only results with flow can be used,
+	 * other results are counted as value-only hits
+	 * @return cached result or {@code null}
+	 */
+	private Result find(Key key, boolean flowNeeded) {
+		Result result = entries.get(key);
+		boolean fromDisk = false;
+		if (result == null) {
+			result = readFromDisk(key);
+			if (result == null) {
+				misses++;
+				return null;
+			}
+			fromDisk = true;
+			deleteFromDisk(key.toPath(diskDirectory));
+			put(key, result);
+		}
+		if (flowNeeded && !result.hasFlow())
+			valueOnlyHits++;
+		else if (fromDisk)
+			diskHits++;
+		else
+			hits++;
+		return result;
+	}
+
+	/**
+	 * Caches current flow of net, which must be a maximum flow
+	 * @param net net with maximum flow
+	 */
+	public void store(Net net) {
+		store(new Key(net), net);
+	}
+
+	private void store(Key key, Net net) {
+		Result result = new Result(net, storeFlow);
+		synchronized (this) {
+			put(key, result);
+		}
+	}
+
+	/**
+	 * Computes fingerprint of net, which is maintained incrementally
+	 * by {@link GraphWithFlow} and {@link UndirectedGraphWithFlow} and
+	 * computed by a scan for other nets
+	 * @param net net to compute fingerprint for
+	 * @return fingerprint of net
+	 */
+	public static long fingerprint(Net net) {
+		if (net instanceof GraphWithFlow)
+			return ((GraphWithFlow) net).getFingerprint();
+		if (net instanceof UndirectedGraphWithFlow)
+			return ((UndirectedGraphWithFlow) net).getFingerprint();
+		long fingerprint = 0;
+		int numberOfNodes = net.getNumberOfNodes();
+		for (int u = 0; u < numberOfNodes; u++)
+			for (int v = 0; v < numberOfNodes; v++)
+				fingerprint += edgeHash(numberOfNodes, u, v, net.getEdgeCapacity(u, v));
+		return fingerprint;
+	}
+
+	/**
+	 * Computes hash of a single edge; fingerprint of a graph is the sum
+	 * of hashes of its edges.
+	 * @param numberOfNodes number of nodes in graph
+	 * @param source edge's source
+	 * @param target edge's target
+	 * @param capacity edge's capacity
+	 * @return hash of edge, 0 if edge does not exist
+	 */
+	static long edgeHash(int numberOfNodes, int source, int target, int capacity) {
+		if (capacity == 0)
+			return 0;
+		long hash = ((long) source * numberOfNodes + target) * 0x9E3779B97F4A7C15L + capacity;
+		//mixing function of splitmix64 generator
+		hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+		hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+		return hash ^ (hash >>> 31);
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getDiskHits() {
+		return diskHits;
+	}
+
+	/**
+	 * Gets number of results found without flow, so that the engine had
+	 * to solve the net again
+	 * @return number of value-only hits
+	 */
+	public synchronized long getValueOnlyHits() {
+		return valueOnlyHits;
+	}
+
+	/**
+	 * Gets number of restored flows rejected as invalid, so that the
+	 * engine had to solve the net again
+	 * @return number of invalid hits
+	 */
+	public synchronized long getInvalidHits() {
+		return invalidHits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Removes all results from memory; disk tier is kept
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		usedBytes = 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("entries %d, bytes %d, disk bytes %d, hits %d, disk hits %d, value-only hits %d, "
+				+ "invalid hits %d, misses %d", entries.size(), usedBytes, diskBytes, hits, diskHits,
+				valueOnlyHits, invalidHits, misses);
+	}
+
+	private void put(Key key, Result result) {
+		Result old = entries.put(key, result);
+		if (old != null)
+			usedBytes -= old.estimateBytes();
+		usedBytes += result.estimateBytes();
+		//evict least recently used results
+		Iterator<Map.Entry<Key, Result>> eldest = entries.entrySet().iterator();
+		while (usedBytes > maxBytes && eldest.hasNext()) {
+			Map.Entry<Key, Result> entry = eldest.next();
+			eldest.remove();
+			usedBytes -= entry.getValue().estimateBytes();
+			writeToDisk(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/*
+	 * disk tier is best effort: results that cannot be written or read
+	 * are treated as not cached
+	 */
+
+	private void writeToDisk(Key key, Result result) {
+		if (diskDirectory == null)
+			return;
+		Path file = key.toPath(diskDirectory);
+		try {
+			Files.createDirectories(diskDirectory);
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+					Files.newOutputStream(file)))) {
+				out.writeInt(FILE_MAGIC);
+				result.write(out);
+			}
+			Long oldSize = diskFiles.remove(file);
+			if (oldSize != null)
+				diskBytes -= oldSize;
+			long size = Files.size(file);
+			diskFiles.put(file, size);
+			diskBytes += size;
+		} catch (IOException e) {
+			//ignore, result is lost
+		}
+		//delete oldest files, possibly the one just written
+		Iterator<Map.Entry<Path, Long>> oldest = diskFiles.entrySet().iterator();
+		while (diskBytes > maxDiskBytes && oldest.hasNext()) {
+			Map.Entry<Path, Long> entry = oldest.next();
+			oldest.remove();
+			diskBytes -= entry.getValue();
+			deleteFile(entry.getKey());
+		}
+	}
+
+	private void deleteFromDisk(Path file) {
+		Long size = diskFiles.remove(file);
+		if (size != null)
+			diskBytes -= size;
+		deleteFile(file);
+	}
+
+	private void deleteFile(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			//ignore, file stays until directory is purged
+		}
+	}
+
+	private Result readFromDisk(Key key) {
+		if (diskDirectory == null)
+			return null;
+		Path file = key.toPath(diskDirectory);
+		if (!Files.isRegularFile(file))
+			return null;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				Files.newInputStream(file)))) {
+			if (in.readInt() != FILE_MAGIC)
+				return null;
+			return new Result(in);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Key of cached results
+	 */
+	private static final class Key {
+		private final long fingerprint;
+		private final int numberOfNodes, source, sink;
+
+		Key(Net net) {
+			fingerprint = fingerprint(net);
+			numberOfNodes = net.getNumberOfNodes();
+			source = net.getSource();
+			sink = net.getSink();
+		}
+
+		Path toPath(Path directory) {
+			return directory.resolve(String.format("%016x-%d-%d-%d.mfc",
+					fingerprint, numberOfNodes, source, sink));
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return fingerprint == other.fingerprint && numberOfNodes == other.numberOfNodes
+					&& source == other.source && sink == other.sink;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(fingerprint) ^ (31 * (31 * numberOfNodes + source) + sink);
+		}
+	}
+
+	/**
+	 * Cached result of maximum flow computation
+	 */
+	public static final class Result {
+		private final int flowValue;
+		private final int numberOfNodes;
+		private final BitSet sourceSide; //nodes reachable from source in residual net
+		private final int[] flowEdges; //triplets <source target flow>, or null
+
+		private Result(Net net, boolean storeFlow) {
+			flowValue = net.getFlow().getTotalFlow();
+			numberOfNodes = net.getNumberOfNodes();
+			sourceSide = computeSourceSide(net.createResidualNet());
+			if (storeFlow) {
+				Net.Flow flow = net.getFlow();
+				int count = 0;
+				for (int u = 0; u < numberOfNodes; u++)
+					for (int v = 0; v < numberOfNodes; v++)
+						if (flow.getEdgeFlow(u, v) > 0)
+							count++;
+				flowEdges = new int[3*count];
+				int idx = 0;
+				for (int u = 0; u < numberOfNodes; u++)
+					for (int v = 0; v < numberOfNodes; v++) {
+						int uvFlow = flow.getEdgeFlow(u, v);
+						if (uvFlow > 0) {
+							flowEdges[idx++] = u;
+							flowEdges[idx++] = v;
+							flowEdges[idx++] = uvFlow;
+						}
+					}
+			} else
+				flowEdges = null;
+		}
+
+		private Result(DataInputStream in) throws IOException {
+			flowValue = in.readInt();
+			numberOfNodes = in.readInt();
+			long[] words = new long[in.readInt()];
+			for (int i = 0; i < words.length; i++)
+				words[i] = in.readLong();
+			sourceSide = BitSet.valueOf(words);
+			int length = in.readInt();
+			if (length < 0)
+				flowEdges = null;
+			else {
+				flowEdges = new int[length];
+				for (int i = 0; i < length; i++)
+					flowEdges[i] = in.readInt();
+			}
+		}
+
+		private void write(DataOutputStream out) throws IOException {
+			out.writeInt(flowValue);
+			out.writeInt(numberOfNodes);
+			long[] words = sourceSide.toLongArray();
+			out.writeInt(words.length);
+			for (long word : words)
+				out.writeLong(word);
+			if (flowEdges == null)
+				out.writeInt(-1);
+			else {
+				out.writeInt(flowEdges.length);
+				for (int value : flowEdges)
+					out.writeInt(value);
+			}
+		}
+
+		private static BitSet computeSourceSide(ResidualNet residualNet) {
+			int numberOfNodes = residualNet.getNumberOfNodes();
+			BitSet reached = new BitSet(numberOfNodes);
+			int[] queue = new int[numberOfNodes];
+			int head = 0, tail = 0;
+			queue[tail++] = residualNet.getSource();
+			reached.set(residualNet.getSource());
+			while (head < tail) {
+				int u = queue[head++];
+				for (int v = 0; v < numberOfNodes; v++)
+					if (!reached.get(v) && residualNet.hasEdge(u, v)) {
+						reached.set(v);
+						queue[tail++] = v;
+					}
+			}
+			return reached;
+		}
+
+		private long estimateBytes() {
+			return 64 + numberOfNodes / 8 + (flowEdges == null ? 0 : 4L * flowEdges.length);
+		}
+
+		public int getFlowValue() {
+			return flowValue;
+		}
+
+		/**
+		 * Gets source side of minimum cut
+		 * @return copy of set of nodes reachable from source in final residual net
+		 */
+		public BitSet getMinCut() {
+			return (BitSet) sourceSide.clone();
+		}
+
+		public boolean hasFlow() {
+			return flowEdges != null;
+		}
+
+		/**
+		 * Replaces flow of net by cached flow
+		 * @param net net with the same edges, source and sink as cached net
+		 */
+		public void restoreFlow(Net net) {
+			if (flowEdges == null)
+				throw new IllegalStateException("Flow was not cached");
+			Net.Flow flow = net.getFlow();
+			flow.clear();
+			for (int idx = 0; idx < flowEdges.length; idx += 3)
+				flow.setEdgeFlow(flowEdges[idx], flowEdges[idx+1], flowEdges[idx+2]);
+		}
+	}
+}
@@ -0,0 +1,238 @@
+package maxflow;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CheckpointedMaxFlow
+ * class running another maxflow algorithm step by step and periodically
+ * saving the current flow to a checkpoint file, so an interrupted
+ * computation can be resumed. Checkpoints are written by a background
+ * thread; if the previous checkpoint is still being written, the next one
+ * is skipped.
+ *
+ * Checkpoint file format (big endian ints and longs):
+ * magic, number of nodes, source, sink, fingerprint (long), phases,
+ * number of flow edges, triplets <source target flow>
+ */
+public final class CheckpointedMaxFlow implements MaxFlow {
+
+	private static final int FILE_MAGIC = 0x4D464B31; //"MFK1"
+
+	private final MaxFlow engine;
+	private final Path checkpointFile;
+	private final long intervalMillis;
+
+	private volatile IOException lastWriteError;
+	private int phaseCount;
+
+	/**
+	 * Constructor of checkpointing algorithm
+	 * @param engine algorithm whose steps are run
+	 * @param checkpointFile file the checkpoints are written to
+	 * @param intervalMillis minimal time between two checkpoints in milliseconds
+	 */
+	public CheckpointedMaxFlow(MaxFlow engine, Path checkpointFile, long intervalMillis) {
+		if (engine == null)
+			throw new NullPointerException("Engine was not defined");
+		if (checkpointFile == null)
+			throw new NullPointerException("Checkpoint file was not defined");
+		if (intervalMillis < 0)
+			throw new ArithmeticException("Checkpoint interval cannot be negative");
+		this.engine = engine;
+		this.checkpointFile = checkpointFile;
+		this.intervalMillis = intervalMillis;
+	}
+
+	/**
+	 * Computes maximum flow starting from the current flow of net.
+	 * Checkpoint file is deleted after the computation has finished.
+	 */
+	@Override
+	public void computeMaxFlow(Net net) {
+		if (net == null)
+			throw new NullPointerException("Net was not defined");
+		phaseCount = 0;
+		run(net);
+	}
+
+	@Override
+	public void step(Net net) {
+		engine.step(net);
+	}
+
+	/**
+	 * Restores flow from the latest checkpoint, if there is one,
+	 * and continues computing maximum flow
+	 * @param net net the checkpoint was written for
+	 * @return {@code true} if computation was resumed from a checkpoint
+	 * @throws IOException if checkpoint exists but could not be read
+	 */
+	public boolean resume(Net net) throws IOException {
+		if (net == null)
+			throw new NullPointerException("Net was not defined");
+		boolean restored = Files.isRegularFile(checkpointFile);
+		phaseCount = restored ? restore(net, checkpointFile) : 0;
+		run(net);
+		return restored;
+	}
+
+	/**
+	 * Runs steps of engine until flow does not grow any more
+	 * @param net net with a valid flow
+	 */
+	private void run(Net net) {
+		lastWriteError = null;
+		ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "maxflow-checkpoint");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			Future<?> pendingWrite = null;
+			long lastCheckpoint = System.currentTimeMillis();
+			int flowValue = net.getFlow().getTotalFlow();
+			while (true) {
+				engine.step(net);
+				int newFlowValue = net.getFlow().getTotalFlow();
+				if (newFlowValue == flowValue) //step found no augmenting path
+					break;
+				flowValue = newFlowValue;
+				phaseCount++;
+
+				long now = System.currentTimeMillis();
+				if (now - lastCheckpoint >= intervalMillis
+						&& (pendingWrite == null || pendingWrite.isDone())) {
+					//snapshot is taken on solver thread, only writing is asynchronous
+					Checkpoint checkpoint = new Checkpoint(net, phaseCount);
+					pendingWrite = writer.submit(() -> write(checkpoint));
+					lastCheckpoint = now;
+				}
+			}
+		} finally {
+			writer.shutdown(); //pending write is finished, never interrupted
+		}
+		try {
+			while (!writer.isTerminated())
+				writer.awaitTermination(1, TimeUnit.SECONDS);
+			Files.deleteIfExists(checkpointFile);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			lastWriteError = e;
+		}
+	}
+
+	/**
+	 * Replaces flow of net by flow saved in checkpoint file
+	 * @param net net the checkpoint was written for
+	 * @param file checkpoint file
+	 * @return number of phases performed before checkpoint
+	 * @throws IOException if file could not be read or belongs to another net
+	 */
+	public static int restore(Net net, Path file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				Files.newInputStream(file)))) {
+			if (in.readInt() != FILE_MAGIC)
+				throw new IOException("Not a checkpoint file: " + file);
+			if (in.readInt() != net.getNumberOfNodes() || in.readInt() != net.getSource()
+					|| in.readInt() != net.getSink() || in.readLong() != CachedMaxFlow.fingerprint(net))
+				throw new IOException("Checkpoint belongs to another net: " + file);
+			int phases = in.readInt();
+			int edges = in.readInt();
+			Net.Flow flow = net.getFlow();
+			flow.clear();
+			for (int e = 0; e < edges; e++)
+				flow.setEdgeFlow(in.readInt(), in.readInt(), in.readInt());
+			return phases;
+		}
+	}
+
+	/**
+	 * Gets number of phases since the start of computation, including
+	 * phases restored from checkpoint
+	 * @return number of phases
+	 */
+	public int getPhaseCount() {
+		return phaseCount;
+	}
+
+	/**
+	 * Gets error of the last failed checkpoint write; a failed write
+	 * does not stop the computation
+	 * @return last error or {@code null}
+	 */
+	public IOException getLastWriteError() {
+		return lastWriteError;
+	}
+
+	private void write(Checkpoint checkpoint) {
+		//write temporary file and move it, so a crash never leaves a broken checkpoint
+		Path temporary = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+					Files.newOutputStream(temporary)))) {
+				checkpoint.write(out);
+			}
+			Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			lastWriteError = e;
+		}
+	}
+
+	/**
+	 * Snapshot of a flow
+	 */
+	private static final class Checkpoint {
+		private final int numberOfNodes, source, sink, phases;
+		private final long fingerprint;
+		private final int[] flowEdges; //triplets <source target flow>
+
+		Checkpoint(Net net, int phases) {
+			numberOfNodes = net.getNumberOfNodes();
+			source = net.getSource();
+			sink = net.getSink();
+			fingerprint = CachedMaxFlow.fingerprint(net);
+			this.phases = phases;
+			Net.Flow flow = net.getFlow();
+			int[] edges = new int[3*16];
+			int idx = 0;
+			for (int u = 0; u < numberOfNodes; u++)
+				for (int v = 0; v < numberOfNodes; v++) {
+					int uvFlow = flow.getEdgeFlow(u, v);
+					if (uvFlow > 0) {
+						if (idx == edges.length)
+							edges = Arrays.copyOf(edges, 2*edges.length);
+						edges[idx++] = u;
+						edges[idx++] = v;
+						edges[idx++] = uvFlow;
+					}
+				}
+			flowEdges = Arrays.copyOf(edges, idx);
+		}
+
+		void write(DataOutputStream out) throws IOException {
+			out.writeInt(FILE_MAGIC);
+			out.writeInt(numberOfNodes);
+			out.writeInt(source);
+			out.writeInt(sink);
+			out.writeLong(fingerprint);
+			out.writeInt(phases);
+			out.writeInt(flowEdges.length / 3);
+			for (int value : flowEdges)
+				out.writeInt(value);
+		}
+	}
+}
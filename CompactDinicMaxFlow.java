@@ -0,0 +1,156 @@
+package maxflow;
+
+import java.util.Arrays;
+
+/**
+ * CompactDinicMaxFlow
+ * class implementing Dinic maxflow algorithm on a {@link CompactGraph}.
+ * Residual capacities are kept per arc and paired arcs take the place of
+ * the residual net, so no n x n matrix is built: a phase is a breadth
+ * first search over the arcs followed by depth first searches along
+ * current arcs, O(m) plus O(n) per augmenting path.
+ */
+public final class CompactDinicMaxFlow {
+
+	private int phaseCount; //number of blocking flow phases of last computation
+	private int[] arcFlow = new int[0]; //flow of each arc of last computation
+
+	/**
+	 * Computes maximum flow of graph
+	 * @param graph graph to solve
+	 * @return value of maximum flow
+	 */
+	public long computeMaxFlow(CompactGraph graph) {
+		if (graph == null)
+			throw new NullPointerException("Graph was not defined");
+		int numberOfNodes = graph.getNumberOfNodes();
+		int numberOfArcs = graph.getNumberOfArcs();
+		int source = graph.getSource(), sink = graph.getSink();
+		int[] residual = new int[numberOfArcs];
+		for (int arc = 0; arc < numberOfArcs; arc++)
+			residual[arc] = graph.getArcCapacity(arc);
+		int[] level = new int[numberOfNodes];
+		int[] queue = new int[numberOfNodes];
+		int[] currentArc = new int[numberOfNodes];
+		int[] pathArc = new int[numberOfNodes]; //arcs of current path from source
+		long flowValue = 0;
+
+		phaseCount = 0;
+		while (computeLevels(graph, residual, level, queue)) {
+			phaseCount++;
+			for (int u = 0; u < numberOfNodes; u++)
+				currentArc[u] = graph.getFirstArc(u);
+			int pathLength = 0, u = source;
+			while (true) {
+				if (u == sink) {
+					//augment path, then continue from tail of first saturated arc
+					int amount = Integer.MAX_VALUE;
+					for (int i = 0; i < pathLength; i++)
+						amount = Math.min(amount, residual[pathArc[i]]);
+					int firstSaturated = -1;
+					for (int i = 0; i < pathLength; i++) {
+						residual[pathArc[i]] -= amount;
+						residual[graph.getReverseArc(pathArc[i])] += amount;
+						if (firstSaturated == -1 && residual[pathArc[i]] == 0)
+							firstSaturated = i;
+					}
+					flowValue += amount;
+					pathLength = firstSaturated;
+					u = tail(graph, pathArc[firstSaturated]);
+					continue;
+				}
+				int arc = currentArc[u];
+				while (arc < graph.getEndArc(u) && (residual[arc] == 0
+						|| level[graph.getArcHead(arc)] != level[u] + 1))
+					arc++;
+				currentArc[u] = arc;
+				if (arc < graph.getEndArc(u)) { //advance
+					pathArc[pathLength++] = arc;
+					u = graph.getArcHead(arc);
+					continue;
+				}
+				if (u == source) //source is dead end, flow is blocking
+					break;
+				//retreat from dead end
+				level[u] = -1;
+				u = tail(graph, pathArc[--pathLength]);
+				currentArc[u]++;
+			}
+		}
+
+		arcFlow = new int[numberOfArcs];
+		for (int arc = 0; arc < numberOfArcs; arc++)
+			arcFlow[arc] = Math.max(0, graph.getArcCapacity(arc) - residual[arc]);
+		return flowValue;
+	}
+
+	private static int tail(CompactGraph graph, int arc) {
+		return graph.getArcHead(graph.getReverseArc(arc));
+	}
+
+	/**
+	 * Assigns bfs-levels along arcs with residual capacity
+	 * @return {@code true} if sink was reached
+	 */
+	private static boolean computeLevels(CompactGraph graph, int[] residual, int[] level, int[] queue) {
+		Arrays.fill(level, -1);
+		int source = graph.getSource(), sink = graph.getSink();
+		int head = 0, tail = 0;
+		level[source] = 0;
+		queue[tail++] = source;
+		while (head < tail && level[sink] == -1) {
+			int u = queue[head++];
+			for (int arc = graph.getFirstArc(u); arc < graph.getEndArc(u); arc++) {
+				int v = graph.getArcHead(arc);
+				if (level[v] == -1 && residual[arc] > 0) {
+					level[v] = level[u] + 1;
+					queue[tail++] = v;
+				}
+			}
+		}
+		return level[sink] != -1;
+	}
+
+	/**
+	 * Gets flow of an arc computed by the last call of
+	 * {@link #computeMaxFlow(CompactGraph)}; of two paired arcs at most
+	 * one carries flow
+	 * @param arc index of arc
+	 * @return flow of arc
+	 */
+	public int getArcFlow(int arc) {
+		return arcFlow[arc];
+	}
+
+	/**
+	 * Checks flow of the last computation: arc flows within capacities and
+	 * flow conservation at all nodes except source and sink
+	 * @param graph graph of the last computation
+	 * @return {@code true} if and only if flow is valid
+	 */
+	public boolean isValidFlow(CompactGraph graph) {
+		if (arcFlow.length != graph.getNumberOfArcs())
+			return false;
+		long[] balance = new long[graph.getNumberOfNodes()];
+		for (int u = 0; u < graph.getNumberOfNodes(); u++)
+			for (int arc = graph.getFirstArc(u); arc < graph.getEndArc(u); arc++) {
+				if (arcFlow[arc] < 0 || arcFlow[arc] > graph.getArcCapacity(arc))
+					return false;
+				balance[u] -= arcFlow[arc];
+				balance[graph.getArcHead(arc)] += arcFlow[arc];
+			}
+		for (int u = 0; u < balance.length; u++)
+			if (u != graph.getSource() && u != graph.getSink() && balance[u] != 0)
+				return false;
+		return balance[graph.getSource()] == -balance[graph.getSink()];
+	}
+
+	/**
+	 * Gets number of blocking flow phases performed by the last call of
+	 * {@link #computeMaxFlow(CompactGraph)}
+	 * @return number of phases
+	 */
+	public int getPhaseCount() {
+		return phaseCount;
+	}
+}
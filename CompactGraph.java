@@ -0,0 +1,209 @@
+package maxflow;
+
+/**
+ * CompactGraph
+ * class describing an immutable directed graph in compressed sparse row
+ * form, created by {@link GraphBuilder}. Arcs of a node are stored
+ * consecutively and sorted by head; every arc (u,v) has a paired reverse
+ * arc (v,u), which has capacity 0 if the graph has no edge (v,u).
+ * Unlike {@link DirectedGraph} the number of nodes is not limited.
+ */
+public final class CompactGraph implements ResidualNet {
+	private final int numberOfNodes, source, sink;
+	//arcs of node u are arcs arcStart[u]..arcStart[u+1]-1
+	private final int[] arcStart, arcHead, arcCapacity, arcReverse;
+
+	/**
+	 * Constructor taking ownership of the given arrays
+	 */
+	CompactGraph(int numberOfNodes, int source, int sink,
+			int[] arcStart, int[] arcHead, int[] arcCapacity, int[] arcReverse) {
+		this.numberOfNodes = numberOfNodes;
+		this.source = source;
+		this.sink = sink;
+		this.arcStart = arcStart;
+		this.arcHead = arcHead;
+		this.arcCapacity = arcCapacity;
+		this.arcReverse = arcReverse;
+	}
+
+	/**
+	 * Gets number of arcs including reverse arcs of capacity 0
+	 * @return number of arcs
+	 */
+	public int getNumberOfArcs() {
+		return arcHead.length;
+	}
+
+	/**
+	 * Gets first arc of node
+	 * @param node index of node
+	 * @return index of first arc leaving node
+	 */
+	public int getFirstArc(int node) {
+		return arcStart[node];
+	}
+
+	/**
+	 * Gets end of arcs of node
+	 * @param node index of node
+	 * @return index after last arc leaving node
+	 */
+	public int getEndArc(int node) {
+		return arcStart[node + 1];
+	}
+
+	public int getArcHead(int arc) {
+		return arcHead[arc];
+	}
+
+	public int getArcCapacity(int arc) {
+		return arcCapacity[arc];
+	}
+
+	/**
+	 * Gets paired reverse arc
+	 * @param arc index of arc (u,v)
+	 * @return index of arc (v,u)
+	 */
+	public int getReverseArc(int arc) {
+		return arcReverse[arc];
+	}
+
+	/**
+	 * Finds arc between two nodes by binary search
+	 * @param source arc's source
+	 * @param target arc's target
+	 * @return index of arc, -1 if there is none
+	 */
+	public int findArc(int source, int target) {
+		if (!indexInBounds(source))
+			throw new ArrayIndexOutOfBoundsException("Invalid vertex index " + source);
+		if (!indexInBounds(target))
+			throw new ArrayIndexOutOfBoundsException("Invalid vertex index " + target);
+		int low = arcStart[source], high = arcStart[source + 1] - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (arcHead[middle] < target)
+				low = middle + 1;
+			else if (arcHead[middle] > target)
+				high = middle - 1;
+			else
+				return middle;
+		}
+		return -1;
+	}
+
+	private boolean indexInBounds(int index) {
+		return (index >= 0 && index < numberOfNodes);
+	}
+
+	@Override
+	public int getEdgeCapacity(int source, int target) {
+		int arc = findArc(source, target);
+		return arc == -1 ? 0 : arcCapacity[arc];
+	}
+
+	/**
+	 * Compact graph is immutable, capacities are only given by {@link GraphBuilder}
+	 * @throws IllegalStateException always
+	 */
+	@Override
+	public void setEdgeCapacity(int source, int target, int capacity) {
+		throw new IllegalStateException("Compact graph is immutable, use GraphBuilder");
+	}
+
+	@Override
+	public boolean isValidEdge(int source, int target, int capacity) {
+		try {
+			return getEdgeCapacity(source, target) == capacity;
+		} catch (ArrayIndexOutOfBoundsException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public boolean isSinkReachableFromSource() {
+		boolean[] visited = new boolean[numberOfNodes];
+		int[] queue = new int[numberOfNodes];
+		int head = 0, tail = 0;
+		queue[tail++] = source;
+		visited[source] = true;
+		while (head < tail) {
+			int u = queue[head++];
+			for (int arc = arcStart[u]; arc < arcStart[u + 1]; arc++) {
+				int v = arcHead[arc];
+				if (!visited[v] && arcCapacity[arc] > 0) {
+					if (v == sink)
+						return true;
+					visited[v] = true;
+					queue[tail++] = v;
+				}
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public int getNumberOfNodes() {
+		return numberOfNodes;
+	}
+
+	@Override
+	public int getSource() {
+		return source;
+	}
+
+	@Override
+	public int getSink() {
+		return sink;
+	}
+
+	@Override
+	public boolean hasEdge(int source, int target) {
+		try {
+			return getEdgeCapacity(source, target) > 0;
+		} catch (ArrayIndexOutOfBoundsException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Computes fingerprint of graph structure, equal to the fingerprint of a
+	 * {@link DirectedGraph} with the same edges
+	 * @return fingerprint of graph
+	 */
+	public long getFingerprint() {
+		long fingerprint = 0;
+		for (int u = 0; u < numberOfNodes; u++)
+			for (int arc = arcStart[u]; arc < arcStart[u + 1]; arc++)
+				fingerprint += CachedMaxFlow.edgeHash(numberOfNodes, u, arcHead[arc], arcCapacity[arc]);
+		return fingerprint;
+	}
+
+	/**
+	 * Creates a net with the edges of this graph and zero flow
+	 * @return new net
+	 */
+	public Net toNet() {
+		GraphWithFlow net = new GraphWithFlow(numberOfNodes, source, sink);
+		//arcs are valid by construction, so the matrix is filled directly
+		net.updateCapacities(capacities -> {
+			for (int u = 0; u < numberOfNodes; u++)
+				for (int arc = arcStart[u]; arc < arcStart[u + 1]; arc++)
+					capacities[u * numberOfNodes + arcHead[arc]] = arcCapacity[arc];
+		});
+		return net;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder graphToStr = new StringBuilder();
+		for (int u = 0; u < numberOfNodes; u++)
+			for (int arc = arcStart[u]; arc < arcStart[u + 1]; arc++)
+				if (arcCapacity[arc] > 0)
+					graphToStr.append(u).append(' ').append(arcHead[arc]).append(' ')
+							.append(arcCapacity[arc]).append('\n');
+		return graphToStr.toString();
+	}
+}
@@ -0,0 +1,104 @@
+package maxflow;
+
+/**
+ * DenseKernels
+ * class containing loops over row-major n x n matrices stored in flat
+ * int arrays, as used by {@link DirectedGraph} and {@link GraphWithFlow}.
+ * Kernels are counted loops without method calls in their body. The row
+ * kernels and the first pass of {@link #computeResidual} walk consecutive
+ * elements and the transposed addition works on tiles, so the loops avoid
+ * cache misses and branches. They are not known to run as SIMD code: C2 of
+ * JDK 17 keeps the int to long widening of {@link #sumRow} and
+ * {@link #addRow} scalar.
+ */
+final class DenseKernels {
+	//edge length of tiles for transposed access, a tile of both matrices fits in L1 cache
+	private static final int TILE = 64;
+
+	/**
+	 * Utility class constructor preventing instantiation.
+	 */
+	private DenseKernels() {
+		throw new UnsupportedOperationException(
+				"Illegal call of utility class constructor.");
+	}
+
+	/**
+	 * Computes residual capacities: result = capacity - flow + transpose(flow),
+	 * i.e. residual(u,v) = c(u,v) - f(u,v) + f(v,u)
+	 * @param capacity edge capacities
+	 * @param flow edge flows, flow of antiparallel edges is cancelled
+	 * @param numberOfNodes number of rows and columns
+	 * @param result array receiving residual capacities
+	 */
+	static void computeResidual(int[] capacity, int[] flow, int numberOfNodes, int[] result) {
+		int length = numberOfNodes * numberOfNodes;
+		for (int i = 0; i < length; i++)
+			result[i] = capacity[i] - flow[i];
+		//transposed addition tile by tile, so the column walk stays in cache
+		for (int rowTile = 0; rowTile < numberOfNodes; rowTile += TILE)
+			for (int columnTile = 0; columnTile < numberOfNodes; columnTile += TILE) {
+				int rowEnd = Math.min(rowTile + TILE, numberOfNodes);
+				int columnEnd = Math.min(columnTile + TILE, numberOfNodes);
+				for (int u = rowTile; u < rowEnd; u++)
+					for (int v = columnTile; v < columnEnd; v++)
+						result[v * numberOfNodes + u] += flow[u * numberOfNodes + v];
+			}
+	}
+
+	/**
+	 * Sums a row
+	 * @param matrix flat matrix
+	 * @param offset index of first element of row
+	 * @param length row length
+	 * @return sum of row elements
+	 */
+	static long sumRow(int[] matrix, int offset, int length) {
+		long sum = 0;
+		for (int i = 0; i < length; i++)
+			sum += matrix[offset + i];
+		return sum;
+	}
+
+	/**
+	 * Adds a row element-wise to {@code sums}
+	 * @param matrix flat matrix
+	 * @param offset index of first element of row
+	 * @param sums array of row length receiving column sums
+	 */
+	static void addRow(int[] matrix, int offset, long[] sums) {
+		for (int i = 0; i < sums.length; i++)
+			sums[i] += matrix[offset + i];
+	}
+
+	/**
+	 * Counts elements where {@code values} exceeds {@code bounds}
+	 * @param values flat matrix of values
+	 * @param bounds flat matrix of upper bounds of same size
+	 * @return number of violated bounds
+	 */
+	static int countExceeding(int[] values, int[] bounds) {
+		int count = 0;
+		for (int i = 0; i < values.length; i++)
+			count += values[i] > bounds[i] ? 1 : 0;
+		return count;
+	}
+
+	/**
+	 * Collects column indices of positive elements of a row,
+	 * e.g. neighbours of a node
+	 * @param matrix flat matrix
+	 * @param offset index of first element of row
+	 * @param length row length
+	 * @param result array of row length receiving indices
+	 * @return number of collected indices
+	 */
+	static int collectPositive(int[] matrix, int offset, int length, int[] result) {
+		int count = 0;
+		for (int v = 0; v < length; v++) {
+			result[count] = v; //branch free: index is kept only if count advances
+			count += matrix[offset + v] > 0 ? 1 : 0;
+		}
+		return count;
+	}
+}
@@ -5,37 +5,109 @@ package maxflow;
  * class implementing Dinic maxflow algorithm
  */
 public final class DinicMaxFlow implements MaxFlow{
+	
+	private final BlockingFlow blockingFlow;
+	private int phaseCount; //number of blocking flow phases of last computation
+	
+	/**
+	 * Constructor of Dinic algorithm finding blocking flows by repeated
+	 * path search in the level graph
+	 */
+	public DinicMaxFlow() {
+		this(DinicMaxFlow::computeBlockingFlow);
+	}
+	
+	/**
+	 * Constructor of Dinic algorithm with another blocking flow strategy
+	 * @param blockingFlow strategy computing blocking flow of each phase
+	 */
+	public DinicMaxFlow(BlockingFlow blockingFlow) {
+		if (blockingFlow == null)
+			throw new NullPointerException("Blocking flow was not defined");
+		this.blockingFlow = blockingFlow;
+	}
+	
 	@Override
 	public void computeMaxFlow(Net net) {
 		if (net == null)
 			throw new NullPointerException("Net was not defined");
 		
+		phaseCount = 0;
 		ResidualNet residualNet = net.createResidualNet();
 		while(residualNet.isSinkReachableFromSource()) {
 			LevelGraph levelGraph = (LevelGraph) net.createNiveauGraph(residualNet);
-			computeBlockingFlow(net, levelGraph);
+			blockingFlow.compute(net, levelGraph, SolveBudget.unlimited());
+			phaseCount++;
+			residualNet = net.createResidualNet();
+		}
+	}
+	
+	/**
+	 * Calculates a maximum flow until {@code budget} is exhausted. Budget is
+	 * checked between augmentations, so the net's flow is always feasible.
+	 * The upper bound is the smallest capacity of a cut seen so far: the
+	 * source's outgoing edges, the sink's incoming edges or a cut between
+	 * two consecutive levels of a level graph.
+	 * 
+	 * @param net The net a maximum flow shall be computed for. The net's flow
+	 *        will be updated.
+	 * @param budget limit of the computation
+	 * @return flow value reached and upper bound of maximum flow value
+	 */
+	public BoundedFlow computeMaxFlow(Net net, SolveBudget budget) {
+		if (net == null)
+			throw new NullPointerException("Net was not defined");
+		if (budget == null)
+			throw new NullPointerException("Budget was not defined");
+		
+		phaseCount = 0;
+		long upperBound = computeTerminalCutCapacity(net);
+		ResidualNet residualNet = net.createResidualNet();
+		while(!budget.isExhausted()) {
+			if (!residualNet.isSinkReachableFromSource()) //flow is maximal
+				return new BoundedFlow(net.getFlow().getTotalFlow(), net.getFlow().getTotalFlow());
+			LevelGraph levelGraph = (LevelGraph) net.createNiveauGraph(residualNet);
+			//every cut has capacity of current flow plus its residual capacity
+			upperBound = Math.min(upperBound, 
+					net.getFlow().getTotalFlow() + levelGraph.computeLevelCutCapacity());
+			blockingFlow.compute(net, levelGraph, budget);
+			phaseCount++;
 			residualNet = net.createResidualNet();
 		}
+		return new BoundedFlow(net.getFlow().getTotalFlow(), upperBound);
 	}
+	
 	@Override
 	public void step(Net net) {
 		ResidualNet residualNet = net.createResidualNet();
 		if (residualNet.isSinkReachableFromSource()) {
 			LevelGraph levelGraph = (LevelGraph) net.createNiveauGraph(residualNet);
-			computeBlockingFlow(net, levelGraph);
+			blockingFlow.compute(net, levelGraph, SolveBudget.unlimited());
+			phaseCount++;
 		}
 	}
 	
 	/**
-     * Computes blocking flow in {@code levelGraph}, and updates flow in this Net
+	 * Gets number of blocking flow phases performed by the last call of 
+	 * {@link #computeMaxFlow(Net)} and all {@link #step(Net)} calls after it
+	 * @return number of phases
+	 */
+	public int getPhaseCount() {
+		return phaseCount;
+	}
+	
+	/**
+     * Computes blocking flow in {@code levelGraph} until {@code budget} is exhausted, 
+     * and updates flow in this Net
      * 
      * @param levelGraph based on this graph computing the flow
+     * @param budget checked before each augmentation
      * 
      */
-    private void computeBlockingFlow(Net net, NiveauGraph levelGraph) {
+    private static void computeBlockingFlow(Net net, NiveauGraph levelGraph, SolveBudget budget) {
     	Net.Flow graphFlow = net.getFlow();
 		Integer[] path = levelGraph.findPath();
-		while (path!=null) {
+		while (path!=null && !budget.isExhausted()) {
 			int pathCapacity = computePathCapacity(levelGraph, path);
 			for (int e = 0; e<path.length-1; e++) {
 				int oldEdegeCapacity = levelGraph.getEdgeCapacity(path[e], path[e+1]);
@@ -46,6 +118,21 @@ public final class DinicMaxFlow implements MaxFlow{
 		}
 	}
     
+	/**
+	 * Computes capacity of the smaller of the cuts around source and sink
+	 * 
+	 * @param net whose cuts are computed
+	 * @return capacity of cut
+	 */
+	private static long computeTerminalCutCapacity(Net net) {
+		long sourceCapacity = 0, sinkCapacity = 0;
+		for (int v = 0; v < net.getNumberOfNodes(); v++) {
+			sourceCapacity += net.getEdgeCapacity(net.getSource(), v);
+			sinkCapacity += net.getEdgeCapacity(v, net.getSink());
+		}
+		return Math.min(sourceCapacity, sinkCapacity);
+	}
+	
 	/**
      * Computes capacity of the path in the net
      * 
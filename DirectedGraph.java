@@ -1,8 +1,6 @@
 package maxflow;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.function.Consumer;
 
 /**
  * DirectedGraph
@@ -13,7 +11,7 @@ import java.util.Queue;
  */
 public class DirectedGraph implements ResidualNet{
 	private int numberOfNodes; 
-	private int[][] adjacencyMatrix; //contains edge capacities 
+	private int[] adjacencyMatrix; //edge capacities, row-major: (u,v) is at u*numberOfNodes+v
 	private int source, sink;
 	
 	/**
@@ -41,7 +39,7 @@ public class DirectedGraph implements ResidualNet{
 					String.format("Graph must have no more than %d nodes", 
 							maxflowConstants.MAX_NUMBER_OF_NODES));
 		this.numberOfNodes = numberOfNodes;
-		adjacencyMatrix = new int[numberOfNodes][numberOfNodes];
+		adjacencyMatrix = new int[numberOfNodes * numberOfNodes];
 		if (!indexInBounds(source_index))
 			throw new ArrayIndexOutOfBoundsException("Bad source index "+source_index);
 		if (!indexInBounds(sink_index))
@@ -70,7 +68,7 @@ public class DirectedGraph implements ResidualNet{
 		if (!indexInBounds(target))
 			throw new ArrayIndexOutOfBoundsException("Invalid vertex index " + target);
 		//if no error with indices return capacity 
-		return adjacencyMatrix[source][target];
+		return adjacencyMatrix[source * numberOfNodes + target];
 	}
 
 	@Override
@@ -82,8 +80,37 @@ public class DirectedGraph implements ResidualNet{
 			throw new ArrayIndexOutOfBoundsException("Invalid vertex index " + target);				
 		if (capacity<0) 
 			throw new ArithmeticException("Edge capasity cannot be negative");		
-		else		//if no errors occurred, change value in adjacencyMatrix to new capacity	
-			adjacencyMatrix[source][target] = capacity;
+		else {		//if no errors occurred, change value in adjacencyMatrix to new capacity	
+			adjacencyMatrix[source * numberOfNodes + target] = capacity;
+		}
+	}
+	
+	/**
+	 * Gets capacity matrix for read-only kernels of {@link DenseKernels}.
+	 * This is not a copy and must not be written, use
+	 * {@link #updateCapacities(Consumer)} instead.
+	 * @return row-major capacity matrix
+	 */
+	int[] getCapacityMatrix() {
+		return adjacencyMatrix;
+	}
+
+	/**
+	 * Writes capacity matrix in bulk, skipping checks of
+	 * {@link #setEdgeCapacity}; state derived from capacities is
+	 * invalidated afterwards
+	 * @param update writes new capacities into row-major capacity matrix
+	 */
+	final void updateCapacities(Consumer<int[]> update) {
+		update.accept(adjacencyMatrix);
+		capacitiesChanged();
+	}
+	
+	/**
+	 * Called after {@link #updateCapacities(Consumer)}; subclasses
+	 * keeping state derived from capacities override it
+	 */
+	void capacitiesChanged() {
 	}
 
 	@Override
@@ -100,34 +127,28 @@ public class DirectedGraph implements ResidualNet{
 
 	@Override
 	public boolean isSinkReachableFromSource() { 
-		// check node reachability by bfs-search
-		Queue<Integer> bfsQueue = new LinkedList<>(); //queue to keep nodes for bfs-search
-		LinkedList<Integer> unvisitedNodes = new LinkedList<>(); //list to track not yet visited nodes
-		//all nodes are unvisited in beginning
-		for (int i=0; i<getNumberOfNodes(); i++)
-			unvisitedNodes.add(i);
-		unvisitedNodes.remove((Integer)source); //remove source from unvisitedNodes
-		bfsQueue.add(source); //add source node in beginning of queue
-		
-		//array to keep track which node were visited during iteration
-		ArrayList<Integer> visitedNodes = new ArrayList<Integer>();
+		// check node reachability by bfs-search, neighbours are found by row scans
+		boolean[] visited = new boolean[numberOfNodes];
+		int[] bfsQueue = new int[numberOfNodes]; //queue to keep nodes for bfs-search
+		int[] neighbours = new int[numberOfNodes];
+		int head = 0, tail = 0;
+		visited[source] = true;
+		bfsQueue[tail++] = source; //add source node in beginning of queue
 		
 		//bfs search goes until queue is empty
-		while (bfsQueue.size()>0) {
-			int currentNode = bfsQueue.poll(); //take node from the top of queue
-			//iterate through unvisited nodes
-	        for (int node : unvisitedNodes) { 
-				if (hasEdge(currentNode, node)) { //for all neighbors of current node
-					if (node == sink)  //if sink found -end search;
-						return true;
-					else { //else add neighbor node in queue
-						bfsQueue.add(node);
-						visitedNodes.add((Integer)node); //consider node visited						
-					}
-				}
+		while (head < tail) {
+			int currentNode = bfsQueue[head++]; //take node from the top of queue
+			int count = DenseKernels.collectPositive(adjacencyMatrix, currentNode * numberOfNodes,
+					numberOfNodes, neighbours);
+			for (int i = 0; i < count; i++) { //for all unvisited neighbors of current node
+				int node = neighbours[i];
+				if (visited[node])
+					continue;
+				if (node == sink)  //if sink found -end search;
+					return true;
+				visited[node] = true;
+				bfsQueue[tail++] = node;
 			}
-	        unvisitedNodes.removeAll(visitedNodes);
-	        visitedNodes.clear();
 		}
 		return false; //if sink was not found in bfs-search - its unreachable
 	}
@@ -164,7 +185,7 @@ public class DirectedGraph implements ResidualNet{
 		String graphToStr = "";
 		for (int i = 0; i < numberOfNodes; i++) {
 			for (int j = 0; j < numberOfNodes; j++)
-				graphToStr+= String.valueOf(adjacencyMatrix[i][j])+" ";
+				graphToStr+= String.valueOf(adjacencyMatrix[i * numberOfNodes + j])+" ";
 			graphToStr = graphToStr.stripTrailing();
 			graphToStr +='\n';
 		}
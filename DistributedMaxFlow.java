@@ -0,0 +1,519 @@
+package maxflow;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DistributedMaxFlow
+ * class computing maxflow by worker processes on the same host. The nodes
+ * are partitioned into regions, every region is owned by a
+ * {@link RegionWorker} process, and the coordinator
+ * exchanges pushes and boundary labels between the regions in synchronous
+ * rounds of region discharge until no flow crosses region boundaries.
+ * Labels of neighbouring regions are stale within a round, so nodes may
+ * give up excess that could still reach the sink. When no flow crosses
+ * boundaries any more, a global relabel run through the workers replaces
+ * all labels by distances to the sink in the residual net; rounds go on
+ * until the relabel leaves no node with excess that reaches the sink.
+ * A {@link Net} is partitioned into regions of nodes close to each other
+ * in bfs order; its maximum preflow is merged into the net and remaining
+ * excess is returned to the source. {@link #solveFile(String)} never builds
+ * a net: edges are streamed from the file to the workers owning their
+ * nodes, regions are blocks of consecutive node ids, and only the flow
+ * value is computed. Then the coordinator holds the region of every node
+ * and the messages of one round, and a worker its own arcs plus arrays of
+ * n labels and indices.
+ *
+ * contains main method running a harness that compares results with
+ * {@link DinicMaxFlow}, or with {@link CompactDinicMaxFlow} if option -f
+ * solves files by streaming:
+ * Usage: DistributedMaxFlow [-w workers] [-f] file...
+ */
+public final class DistributedMaxFlow implements MaxFlow {
+
+	private static final int WORKER_TIMEOUT_SECONDS = 30;
+
+	private final int numberOfWorkers;
+	private int rounds; //rounds of last computation
+	private int globalRelabels; //global relabels of last computation
+
+	/**
+	 * Constructor of distributed algorithm
+	 * @param numberOfWorkers number of worker processes, i.e. of regions
+	 */
+	public DistributedMaxFlow(int numberOfWorkers) {
+		if (numberOfWorkers < 1)
+			throw new ArithmeticException("Number of workers must be positive");
+		this.numberOfWorkers = numberOfWorkers;
+	}
+
+	/**
+	 * Computes maximum flow by worker processes. The current flow of
+	 * the net is replaced.
+	 * @throws UncheckedIOException if communication with workers fails
+	 */
+	@Override
+	public void computeMaxFlow(Net net) {
+		if (net == null)
+			throw new NullPointerException("Net was not defined");
+		try {
+			solve(net);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Computes maximum flow value of the net in a file by worker processes
+	 * without building the net. Like {@link Shell#loadCompactGraph(String)},
+	 * an edge given more than once gets the sum of its capacities and loops
+	 * are ignored; source and sink are the first and the last node.
+	 * @param fileName name of the file with net data
+	 * @return value of maximum flow
+	 * @throws FileNotFoundException if file does not exist
+	 * @throws UncheckedIOException if communication with workers fails
+	 */
+	public long solveFile(String fileName) throws FileNotFoundException {
+		Scanner reader = new Scanner(Shell.openFile(fileName));
+		try {
+			int numberOfNodes = reader.nextInt();
+			if (numberOfNodes < maxflowConstants.MIN_NUMBER_OF_NODES)
+				throw new ArithmeticException(
+						String.format("Graph must have at least %d nodes", maxflowConstants.MIN_NUMBER_OF_NODES));
+			int workers = Math.min(numberOfWorkers, numberOfNodes);
+			int[] region = new int[numberOfNodes];
+			for (int v = 0; v < numberOfNodes; v++)
+				region[v] = (int) ((long) v * workers / numberOfNodes);
+			int sink = numberOfNodes - 1;
+			long[] flowValue = new long[1];
+			run(numberOfNodes, 0, sink, region, out -> {
+				while (reader.hasNextInt()) {
+					//reads a triplet <source target capacity> from file
+					int u = reader.nextInt() - maxflowConstants.INDEX_OFFSET;
+					int v = reader.nextInt() - maxflowConstants.INDEX_OFFSET;
+					int capacity = reader.nextInt();
+					if (u < 0 || u >= numberOfNodes)
+						throw new ArrayIndexOutOfBoundsException("Invalid vertex index " + u);
+					if (v < 0 || v >= numberOfNodes)
+						throw new ArrayIndexOutOfBoundsException("Invalid vertex index " + v);
+					if (capacity < 0)
+						throw new ArithmeticException("Edge capacity cannot be negative");
+					if (capacity > 0 && u != v)
+						sendEdge(out, region, u, v, capacity);
+				}
+			}, (u, v, flow) -> {
+				if (v == sink)
+					flowValue[0] += flow;
+			});
+			return flowValue[0];
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Distributed computation cannot be divided into steps, so a step
+	 * is one phase of {@link DinicMaxFlow}.
+	 */
+	@Override
+	public void step(Net net) {
+		new DinicMaxFlow().step(net);
+	}
+
+	public int getRounds() {
+		return rounds;
+	}
+
+	public int getGlobalRelabels() {
+		return globalRelabels;
+	}
+
+	/**
+	 * Assigns nodes to regions: nodes are ordered by bfs from source
+	 * ignoring edge directions (unreached nodes last) and the order is
+	 * split into parts of equal size
+	 * @param net net to partition
+	 * @param regions number of regions
+	 * @return region of each node
+	 */
+	static int[] partition(Net net, int regions) {
+		int numberOfNodes = net.getNumberOfNodes();
+		int[] order = new int[numberOfNodes];
+		boolean[] visited = new boolean[numberOfNodes];
+		int tail = 0;
+		for (int start = net.getSource(), next = 0; tail < numberOfNodes; ) {
+			int head = tail;
+			order[tail++] = start;
+			visited[start] = true;
+			while (head < tail) {
+				int u = order[head++];
+				for (int v = 0; v < numberOfNodes; v++)
+					if (!visited[v] && (net.hasEdge(u, v) || net.hasEdge(v, u))) {
+						visited[v] = true;
+						order[tail++] = v;
+					}
+			}
+			while (next < numberOfNodes && visited[next])
+				next++;
+			start = next;
+		}
+		int[] region = new int[numberOfNodes];
+		for (int idx = 0; idx < numberOfNodes; idx++)
+			region[order[idx]] = (int) ((long) idx * regions / numberOfNodes);
+		return region;
+	}
+
+	private void solve(Net net) throws IOException {
+		int numberOfNodes = net.getNumberOfNodes();
+		int[] region = partition(net, Math.min(numberOfWorkers, numberOfNodes));
+		Net.Flow flow = net.getFlow();
+		flow.clear();
+		run(numberOfNodes, net.getSource(), net.getSink(), region, out -> {
+			for (int u = 0; u < numberOfNodes; u++)
+				for (int v = 0; v < numberOfNodes; v++)
+					if (u != v && net.hasEdge(u, v))
+						sendEdge(out, region, u, v, net.getEdgeCapacity(u, v));
+		}, flow::setEdgeFlow);
+		returnExcess(net);
+	}
+
+	/**
+	 * Sends edges to workers
+	 */
+	private interface EdgeSource {
+		/**
+		 * Sends every edge by {@link DistributedMaxFlow#sendEdge}
+		 * @param out streams to workers
+		 */
+		void sendEdges(DataOutputStream[] out) throws IOException;
+	}
+
+	/**
+	 * Receives flow of an arc at the end of computation
+	 */
+	private interface FlowReceiver {
+		void receive(int source, int target, int flow);
+	}
+
+	/**
+	 * Starts one worker per region, sends regions, runs rounds and global
+	 * relabels until no work is left and collects the maximum preflow
+	 * @param region region of every node, regions are numbered from 0
+	 * @param edges sends edges to workers
+	 * @param receiver receives positive flow of every arc
+	 */
+	private void run(int numberOfNodes, int source, int sink, int[] region, EdgeSource edges,
+			FlowReceiver receiver) throws IOException {
+		int workers = 0;
+		for (int r : region)
+			workers = Math.max(workers, r + 1);
+		rounds = 0;
+		globalRelabels = 0;
+
+		List<Process> processes = new ArrayList<>();
+		Socket[] sockets = new Socket[workers];
+		DataInputStream[] in = new DataInputStream[workers];
+		DataOutputStream[] out = new DataOutputStream[workers];
+		try (ServerSocket server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress())) {
+			server.setSoTimeout(WORKER_TIMEOUT_SECONDS * 1000);
+			String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+			for (int w = 0; w < workers; w++)
+				processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+						RegionWorker.class.getName(), String.valueOf(server.getLocalPort()), String.valueOf(w))
+						.redirectOutput(ProcessBuilder.Redirect.DISCARD)
+						.redirectError(ProcessBuilder.Redirect.INHERIT)
+						.start());
+			for (int connected = 0; connected < workers; connected++) {
+				Socket socket = server.accept();
+				DataInputStream socketIn = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+				int w = socketIn.readInt();
+				sockets[w] = socket;
+				in[w] = socketIn;
+				out[w] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			}
+
+			//INIT: number of nodes, source, sink, regions, arcs terminated by -1
+			for (int w = 0; w < workers; w++) {
+				out[w].writeInt(RegionWorker.INIT);
+				out[w].writeInt(numberOfNodes);
+				out[w].writeInt(source);
+				out[w].writeInt(sink);
+				for (int v = 0; v < numberOfNodes; v++)
+					out[w].writeInt(region[v]);
+			}
+			edges.sendEdges(out);
+			for (int w = 0; w < workers; w++) {
+				out[w].writeInt(-1);
+				out[w].flush();
+			}
+
+			IntList[] pushes = new IntList[workers], labels = new IntList[workers];
+			for (int w = 0; w < workers; w++) {
+				pushes[w] = new IntList(3);
+				labels[w] = new IntList(2);
+			}
+			boolean workLeft = true;
+			while (workLeft) {
+				boolean flowCrossesBoundary = true;
+				while (flowCrossesBoundary) {
+					rounds++;
+					for (int w = 0; w < workers; w++) {
+						out[w].writeInt(RegionWorker.ROUND);
+						pushes[w].write(out[w]);
+						labels[w].write(out[w]);
+						out[w].flush();
+						pushes[w].clear();
+						labels[w].clear();
+					}
+					flowCrossesBoundary = false;
+					for (int w = 0; w < workers; w++) {
+						int pushCount = in[w].readInt();
+						for (int p = 0; p < pushCount; p++) {
+							int from = in[w].readInt(), to = in[w].readInt(), amount = in[w].readInt();
+							pushes[region[to]].add(from, to, amount);
+							flowCrossesBoundary = true;
+						}
+						readLabels(in[w], labels);
+					}
+				}
+				//labels of the last round are replaced by the global relabel
+				for (int w = 0; w < workers; w++)
+					labels[w].clear();
+				if (++globalRelabels > 2 * numberOfNodes)
+					throw new ArithmeticException("Distributed computation does not converge");
+				workLeft = relabelGlobally(in, out, labels);
+			}
+
+			for (int w = 0; w < workers; w++) {
+				out[w].writeInt(RegionWorker.FINISH);
+				out[w].flush();
+				int count = in[w].readInt();
+				for (int e = 0; e < count; e++)
+					receiver.receive(in[w].readInt(), in[w].readInt(), in[w].readInt());
+			}
+		} finally {
+			for (Socket socket : sockets)
+				if (socket != null)
+					socket.close();
+			for (Process process : processes)
+				try {
+					if (!process.waitFor(WORKER_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+						process.destroyForcibly();
+				} catch (InterruptedException e) {
+					process.destroyForcibly();
+					Thread.currentThread().interrupt();
+				}
+		}
+	}
+
+	/**
+	 * Reads changed labels of boundary nodes from worker as triplets
+	 * <region node label> and adds them to the messages of the regions
+	 * @return number of changed labels
+	 */
+	private static int readLabels(DataInputStream in, IntList[] labels) throws IOException {
+		int labelCount = in.readInt();
+		for (int l = 0; l < labelCount; l++) {
+			int target = in.readInt(), node = in.readInt(), label = in.readInt();
+			labels[target].add(node, label);
+		}
+		return labelCount;
+	}
+
+	/**
+	 * Computes distances to sink in the residual net by repeated region
+	 * searches until no boundary distance changes, then lets workers use
+	 * them as labels
+	 * @return {@code true} if some node with excess or the source can
+	 * still send flow to the sink
+	 */
+	private static boolean relabelGlobally(DataInputStream[] in, DataOutputStream[] out,
+			IntList[] distances) throws IOException {
+		int workers = out.length;
+		boolean distanceChanged = true;
+		while (distanceChanged) {
+			for (int w = 0; w < workers; w++) {
+				out[w].writeInt(RegionWorker.GLOBAL_RELABEL);
+				distances[w].write(out[w]);
+				out[w].flush();
+				distances[w].clear();
+			}
+			distanceChanged = false;
+			for (int w = 0; w < workers; w++)
+				if (readLabels(in[w], distances) > 0)
+					distanceChanged = true;
+		}
+		long work = 0;
+		for (int w = 0; w < workers; w++) {
+			out[w].writeInt(RegionWorker.APPLY_LABELS);
+			out[w].flush();
+		}
+		for (int w = 0; w < workers; w++)
+			work += in[w].readInt();
+		return work > 0;
+	}
+
+	/**
+	 * Sends edge (u,v) to the owner of u and its reverse arc of capacity 0
+	 * to the owner of v; workers sum capacities of arcs sent more than once
+	 */
+	private static void sendEdge(DataOutputStream[] out, int[] region, int u, int v, int capacity)
+			throws IOException {
+		out[region[u]].writeInt(u);
+		out[region[u]].writeInt(v);
+		out[region[u]].writeInt(capacity);
+		out[region[v]].writeInt(v);
+		out[region[v]].writeInt(u);
+		out[region[v]].writeInt(0);
+	}
+
+	/**
+	 * Turns preflow into flow by moving excess of inner nodes back to
+	 * the source along edges carrying flow. Flow into the source, which
+	 * push-relabel may leave when excess was returned over edges into
+	 * the source, is removed first and turned into excess as well.
+	 * @param net net with a preflow
+	 */
+	private static void returnExcess(Net net) {
+		int numberOfNodes = net.getNumberOfNodes();
+		int source = net.getSource(), sink = net.getSink();
+		Net.Flow flow = net.getFlow();
+		for (int u = 0; u < numberOfNodes; u++)
+			flow.setEdgeFlow(u, source, 0);
+		long[] excess = new long[numberOfNodes];
+		for (int u = 0; u < numberOfNodes; u++)
+			for (int v = 0; v < numberOfNodes; v++) {
+				int uvFlow = flow.getEdgeFlow(u, v);
+				excess[u] -= uvFlow;
+				excess[v] += uvFlow;
+			}
+		int[] predecessor = new int[numberOfNodes];
+		int[] queue = new int[numberOfNodes];
+		for (int node = 0; node < numberOfNodes; node++)
+			while (node != source && node != sink && excess[node] > 0) {
+				//bfs backwards along flow carrying edges
+				Arrays.fill(predecessor, -1);
+				predecessor[node] = node;
+				int head = 0, tail = 0;
+				queue[tail++] = node;
+				while (head < tail && predecessor[source] == -1) {
+					int v = queue[head++];
+					for (int u = 0; u < numberOfNodes; u++)
+						if (predecessor[u] == -1 && flow.getEdgeFlow(u, v) > 0) {
+							predecessor[u] = v;
+							queue[tail++] = u;
+						}
+				}
+				if (predecessor[source] == -1)
+					throw new ArithmeticException("Excess is not reachable from source");
+				long amount = excess[node];
+				for (int u = source; u != node; u = predecessor[u])
+					amount = Math.min(amount, flow.getEdgeFlow(u, predecessor[u]));
+				for (int u = source; u != node; u = predecessor[u])
+					flow.setEdgeFlow(u, predecessor[u], flow.getEdgeFlow(u, predecessor[u]) - (int) amount);
+				excess[node] -= amount;
+			}
+	}
+
+	/**
+	 * Growable list of ints for messages
+	 */
+	private static final class IntList {
+		private final int entryLength; //number of values per entry
+		private int[] values = new int[16];
+		private int size;
+
+		IntList(int entryLength) {
+			this.entryLength = entryLength;
+		}
+
+		void add(int... added) {
+			if (size + added.length > values.length)
+				values = Arrays.copyOf(values, Math.max(2 * values.length, size + added.length));
+			System.arraycopy(added, 0, values, size, added.length);
+			size += added.length;
+		}
+
+		void clear() {
+			size = 0;
+		}
+
+		/**
+		 * Writes number of entries followed by values
+		 */
+		void write(DataOutputStream out) throws IOException {
+			out.writeInt(size / entryLength);
+			for (int i = 0; i < size; i++)
+				out.writeInt(values[i]);
+		}
+	}
+
+	/**
+	 * Solves each file by distributed and by sequential algorithm and
+	 * prints both flow values.
+	 *
+	 * @param args command-line arguments.
+	 */
+	public static void main(String[] args) {
+		int workers = 4;
+		int first = 0;
+		boolean streaming = false;
+		if (args.length > 1 && args[0].equals("-w")) {
+			workers = Integer.parseInt(args[1]);
+			first = 2;
+		}
+		if (first < args.length && args[first].equals("-f")) {
+			streaming = true;
+			first++;
+		}
+		boolean allCorrect = true;
+		for (int i = first; i < args.length; i++) {
+			try {
+				if (streaming) {
+					DistributedMaxFlow distributed = new DistributedMaxFlow(workers);
+					long flowValue = distributed.solveFile(args[i]);
+					long sequentialValue = new CompactDinicMaxFlow().computeMaxFlow(Shell.loadCompactGraph(args[i]));
+					boolean correct = flowValue == sequentialValue;
+					allCorrect &= correct;
+					System.out.println(String.format("%s\t%s\t%d\t%d\trounds %d, global relabels %d", args[i],
+							correct ? "OK" : "MISMATCH", flowValue, sequentialValue,
+							distributed.getRounds(), distributed.getGlobalRelabels()));
+					continue;
+				}
+				Net distributedNet = Shell.loadNet(args[i]);
+				Net sequentialNet = Shell.loadNet(args[i]);
+				DistributedMaxFlow distributed = new DistributedMaxFlow(workers);
+				distributed.computeMaxFlow(distributedNet);
+				new DinicMaxFlow().computeMaxFlow(sequentialNet);
+				int flowValue = distributedNet.getFlow().getTotalFlow();
+				boolean correct = distributedNet.getFlow().isValidFlow()
+						&& flowValue == sequentialNet.getFlow().getTotalFlow();
+				allCorrect &= correct;
+				System.out.println(String.format("%s\t%s\t%d\t%d\trounds %d, global relabels %d", args[i],
+						correct ? "OK" : "MISMATCH", flowValue, sequentialNet.getFlow().getTotalFlow(),
+						distributed.getRounds(), distributed.getGlobalRelabels()));
+			} catch (FileNotFoundException e) {
+				System.err.println("Error! File Not Found: " + args[i]);
+				allCorrect = false;
+			}
+		}
+		if (!allCorrect)
+			System.exit(1);
+	}
+}
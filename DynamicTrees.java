@@ -0,0 +1,232 @@
+package maxflow;
+
+import java.util.Arrays;
+
+/**
+ * DynamicTrees
+ * class implementing a forest of rooted trees (Sleator-Tarjan link-cut trees)
+ * on primitive arrays. Every node has a cost, which for a non-root node is
+ * the cost of the edge to its parent. Path operations work on the path from
+ * a node to the root of its tree in amortized O(log n) time.
+ * Preferred paths are kept in splay trees ordered by depth.
+ */
+final class DynamicTrees {
+	static final long INFINITE_COST = Long.MAX_VALUE / 4; //cost of tree roots
+
+	private static final int NONE = -1;
+
+	private final int[] left, right;
+	private final int[] parent; //splay tree parent, or path-parent for splay tree roots
+	private final long[] cost, minCost, pendingAdd; //pendingAdd is not yet added to children
+	private final int[] splayStack;
+
+	/**
+	 * Constructs forest of single node trees
+	 * @param numberOfNodes number of nodes in forest
+	 */
+	DynamicTrees(int numberOfNodes) {
+		left = new int[numberOfNodes];
+		right = new int[numberOfNodes];
+		parent = new int[numberOfNodes];
+		cost = new long[numberOfNodes];
+		minCost = new long[numberOfNodes];
+		pendingAdd = new long[numberOfNodes];
+		splayStack = new int[numberOfNodes];
+		Arrays.fill(left, NONE);
+		Arrays.fill(right, NONE);
+		Arrays.fill(parent, NONE);
+		Arrays.fill(cost, INFINITE_COST);
+		Arrays.fill(minCost, INFINITE_COST);
+	}
+
+	/**
+	 * Finds root of the tree containing node
+	 * @param node node of tree
+	 * @return root of tree
+	 */
+	int findRoot(int node) {
+		access(node);
+		int root = node;
+		push(root);
+		while (left[root] != NONE) {
+			root = left[root];
+			push(root);
+		}
+		splay(root);
+		return root;
+	}
+
+	/**
+	 * Makes tree root {@code node} a child of {@code newParent}
+	 * @param node root of a tree
+	 * @param newParent node of another tree
+	 * @param edgeCost cost of the new edge
+	 */
+	void link(int node, int newParent, long edgeCost) {
+		access(node); //node is root of its tree, so it is alone in its splay tree
+		cost[node] = edgeCost;
+		update(node);
+		parent[node] = newParent;
+	}
+
+	/**
+	 * Removes edge from node to its parent; node becomes a root
+	 * @param node non-root node
+	 */
+	void cut(int node) {
+		access(node);
+		if (left[node] != NONE) {
+			parent[left[node]] = NONE;
+			left[node] = NONE;
+		}
+		cost[node] = INFINITE_COST;
+		update(node);
+	}
+
+	/**
+	 * Gets cost of node
+	 * @param node node of forest
+	 * @return cost of edge to parent, {@link #INFINITE_COST} for roots
+	 */
+	long getCost(int node) {
+		access(node);
+		return cost[node];
+	}
+
+	/**
+	 * Computes minimal cost on the path from node to its root
+	 * @param node node of forest
+	 * @return minimal cost
+	 */
+	long findPathMinCost(int node) {
+		access(node);
+		return minCost[node];
+	}
+
+	/**
+	 * Finds the node closest to the root with minimal cost on the path
+	 * from node to its root
+	 * @param node node of forest
+	 * @return node with minimal cost
+	 */
+	int findPathMinNode(int node) {
+		access(node);
+		long target = minCost[node];
+		int current = node;
+		while (true) {
+			push(current);
+			if (left[current] != NONE && minCost[left[current]] == target)
+				current = left[current];
+			else if (cost[current] == target)
+				break;
+			else
+				current = right[current];
+		}
+		splay(current);
+		return current;
+	}
+
+	/**
+	 * Adds {@code delta} to costs of all nodes on the path from node to its root
+	 * @param node node of forest
+	 * @param delta cost addendum
+	 */
+	void addPathCost(int node, long delta) {
+		access(node);
+		apply(node, delta);
+	}
+
+	/**
+	 * Makes the path from root to node preferred; afterwards node is
+	 * root of a splay tree containing exactly this path
+	 */
+	private void access(int node) {
+		int last = NONE;
+		for (int current = node; current != NONE; current = parent[current]) {
+			splay(current);
+			right[current] = last;
+			update(current);
+			last = current;
+		}
+		splay(node);
+	}
+
+	private boolean isSplayRoot(int node) {
+		int p = parent[node];
+		return p == NONE || (left[p] != node && right[p] != node);
+	}
+
+	private void splay(int node) {
+		//push pending additions from splay root down to node
+		int top = 0;
+		int current = node;
+		splayStack[top++] = current;
+		while (!isSplayRoot(current)) {
+			current = parent[current];
+			splayStack[top++] = current;
+		}
+		while (top > 0)
+			push(splayStack[--top]);
+
+		while (!isSplayRoot(node)) {
+			int p = parent[node];
+			if (!isSplayRoot(p)) {
+				int grandParent = parent[p];
+				boolean zigZig = (left[grandParent] == p) == (left[p] == node);
+				rotate(zigZig ? p : node);
+			}
+			rotate(node);
+		}
+	}
+
+	private void rotate(int node) {
+		int p = parent[node];
+		int grandParent = parent[p];
+		if (!isSplayRoot(p)) {
+			if (left[grandParent] == p)
+				left[grandParent] = node;
+			else
+				right[grandParent] = node;
+		}
+		parent[node] = grandParent;
+		if (left[p] == node) {
+			left[p] = right[node];
+			if (right[node] != NONE)
+				parent[right[node]] = p;
+			right[node] = p;
+		} else {
+			right[p] = left[node];
+			if (left[node] != NONE)
+				parent[left[node]] = p;
+			left[node] = p;
+		}
+		parent[p] = node;
+		update(p);
+		update(node);
+	}
+
+	private void apply(int node, long delta) {
+		cost[node] += delta;
+		minCost[node] += delta;
+		pendingAdd[node] += delta;
+	}
+
+	private void push(int node) {
+		if (pendingAdd[node] != 0) {
+			if (left[node] != NONE)
+				apply(left[node], pendingAdd[node]);
+			if (right[node] != NONE)
+				apply(right[node], pendingAdd[node]);
+			pendingAdd[node] = 0;
+		}
+	}
+
+	private void update(int node) {
+		long min = cost[node];
+		if (left[node] != NONE)
+			min = Math.min(min, minCost[left[node]]);
+		if (right[node] != NONE)
+			min = Math.min(min, minCost[right[node]]);
+		minCost[node] = min;
+	}
+}
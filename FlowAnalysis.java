@@ -0,0 +1,226 @@
+package maxflow;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * FlowAnalysis
+ * class analysing a net with maximum flow by its final residual net:
+ * classifies edges by their membership in minimum cuts and answers
+ * capacity increase queries by augmenting from the maximum flow.
+ *
+ * Minimum cuts are exactly the node sets S containing source, not
+ * containing sink and closed under residual edges. Thus an edge (u,v)
+ * - is in every minimum cut iff u is reachable from source and v reaches
+ *   sink in the residual net,
+ * - is in some minimum cut iff it is saturated, u and v lie in different
+ *   strongly connected components of the residual net, u does not reach
+ *   sink and v is not reachable from source.
+ */
+public final class FlowAnalysis {
+
+	/**
+	 * Membership of an edge in minimum cuts
+	 */
+	public enum EdgeClass {
+		EVERY_MIN_CUT, SOME_MIN_CUT, NO_MIN_CUT
+	}
+
+	private final Net net;
+	private final int flowValue;
+	private final boolean[] reachableFromSource, reachingSink;
+	private final int[] component; //strongly connected component of residual net
+
+	/**
+	 * Constructs analysis of the current flow of net
+	 * @param net net with maximum flow; must not be changed while analysis is used
+	 */
+	public FlowAnalysis(Net net) {
+		if (net == null)
+			throw new NullPointerException("Net was not defined");
+		this.net = net;
+		flowValue = net.getFlow().getTotalFlow();
+		ResidualNet residualNet = net.createResidualNet();
+		if (residualNet.isSinkReachableFromSource())
+			throw new ArithmeticException("Flow is not maximal");
+		reachableFromSource = search(residualNet, residualNet.getSource(), true);
+		reachingSink = search(residualNet, residualNet.getSink(), false);
+		component = computeComponents(residualNet);
+	}
+
+	/**
+	 * Classifies edge of net
+	 * @param source edge's source
+	 * @param target edge's target
+	 * @return membership of edge in minimum cuts
+	 */
+	public EdgeClass classify(int source, int target) {
+		if (!net.hasEdge(source, target))
+			return EdgeClass.NO_MIN_CUT;
+		if (reachableFromSource[source] && reachingSink[target])
+			return EdgeClass.EVERY_MIN_CUT;
+		boolean saturated = net.getFlow().getEdgeFlow(source, target) == net.getEdgeCapacity(source, target);
+		if (saturated && component[source] != component[target]
+				&& !reachingSink[source] && !reachableFromSource[target])
+			return EdgeClass.SOME_MIN_CUT;
+		return EdgeClass.NO_MIN_CUT;
+	}
+
+	/**
+	 * Classifies all edges of net
+	 * @return class of each edge, {@code null} where there is no edge
+	 */
+	public EdgeClass[][] classifyAll() {
+		int numberOfNodes = net.getNumberOfNodes();
+		EdgeClass[][] classes = new EdgeClass[numberOfNodes][numberOfNodes];
+		for (int u = 0; u < numberOfNodes; u++)
+			for (int v = 0; v < numberOfNodes; v++)
+				if (net.hasEdge(u, v))
+					classes[u][v] = classify(u, v);
+		return classes;
+	}
+
+	/**
+	 * Computes increase of maximum flow value for each query, where query i
+	 * increases capacity of edge (sources[i], targets[i]) by deltas[i].
+	 * Only edges in every minimum cut can increase the flow value; for them
+	 * a copy of the net is augmented starting from the maximum flow.
+	 * Queries are answered in parallel.
+	 * @param sources sources of edges
+	 * @param targets targets of edges
+	 * @param deltas capacity increases, must be greater or equal to zero
+	 * @return increase of maximum flow value for each query
+	 */
+	public int[] computeCapacityIncreaseGains(int[] sources, int[] targets, int[] deltas) {
+		if (sources.length != targets.length || sources.length != deltas.length)
+			throw new ArithmeticException("Query arrays must have equal length");
+		return IntStream.range(0, sources.length).parallel()
+				.map(i -> computeCapacityIncreaseGain(sources[i], targets[i], deltas[i]))
+				.toArray();
+	}
+
+	/**
+	 * Computes increase of maximum flow value when capacity of edge
+	 * (source, target) is increased by delta. In an
+	 * {@link UndirectedGraphWithFlow} the edge is widened in both directions.
+	 * @param source edge's source
+	 * @param target edge's target
+	 * @param delta capacity increase, must be greater or equal to zero
+	 * @return increase of maximum flow value
+	 */
+	public int computeCapacityIncreaseGain(int source, int target, int delta) {
+		if (delta < 0)
+			throw new ArithmeticException("Capacity increase cannot be negative");
+		//new capacity can only be used if edge leaves source side and enters sink side
+		boolean undirected = net instanceof UndirectedGraphWithFlow;
+		boolean crossesCut = (reachableFromSource[source] && reachingSink[target])
+				|| (undirected && reachableFromSource[target] && reachingSink[source]);
+		if (delta == 0 || !crossesCut)
+			return 0;
+		Net copy = copyNet(net);
+		copy.setEdgeCapacity(source, target, net.getEdgeCapacity(source, target) + delta);
+		new DinicMaxFlow().computeMaxFlow(copy);
+		return copy.getFlow().getTotalFlow() - flowValue;
+	}
+
+	/**
+	 * Creates copy of net with its current flow, keeping its type
+	 */
+	private static Net copyNet(Net net) {
+		int numberOfNodes = net.getNumberOfNodes();
+		Net copy = net instanceof UndirectedGraphWithFlow
+				? new UndirectedGraphWithFlow(numberOfNodes, net.getSource(), net.getSink())
+				: new GraphWithFlow(numberOfNodes, net.getSource(), net.getSink());
+		Net.Flow flow = net.getFlow(), copyFlow = copy.getFlow();
+		for (int u = 0; u < numberOfNodes; u++)
+			for (int v = 0; v < numberOfNodes; v++) {
+				int capacity = net.getEdgeCapacity(u, v);
+				if (capacity > 0) {
+					copy.setEdgeCapacity(u, v, capacity);
+					int edgeFlow = flow.getEdgeFlow(u, v);
+					if (edgeFlow > 0)
+						copyFlow.setEdgeFlow(u, v, edgeFlow);
+				}
+			}
+		return copy;
+	}
+
+	/**
+	 * Searches nodes reachable from (or reaching) {@code start} in residual net
+	 * @param forward {@code true} to follow edges forward, {@code false} backward
+	 */
+	private static boolean[] search(ResidualNet residualNet, int start, boolean forward) {
+		int numberOfNodes = residualNet.getNumberOfNodes();
+		boolean[] reached = new boolean[numberOfNodes];
+		int[] queue = new int[numberOfNodes];
+		int head = 0, tail = 0;
+		queue[tail++] = start;
+		reached[start] = true;
+		while (head < tail) {
+			int u = queue[head++];
+			for (int v = 0; v < numberOfNodes; v++)
+				if (!reached[v] && (forward ? residualNet.hasEdge(u, v) : residualNet.hasEdge(v, u))) {
+					reached[v] = true;
+					queue[tail++] = v;
+				}
+		}
+		return reached;
+	}
+
+	/**
+	 * Computes strongly connected components by iterative Tarjan algorithm
+	 * @return component index of each node
+	 */
+	private static int[] computeComponents(ResidualNet residualNet) {
+		int numberOfNodes = residualNet.getNumberOfNodes();
+		int[] index = new int[numberOfNodes], lowLink = new int[numberOfNodes];
+		int[] components = new int[numberOfNodes];
+		int[] nextNeighbour = new int[numberOfNodes];
+		int[] callStack = new int[numberOfNodes], nodeStack = new int[numberOfNodes];
+		boolean[] onStack = new boolean[numberOfNodes];
+		Arrays.fill(index, -1);
+		int counter = 0, componentCount = 0;
+
+		for (int root = 0; root < numberOfNodes; root++) {
+			if (index[root] != -1)
+				continue;
+			int callDepth = 0, stackSize = 0;
+			callStack[callDepth++] = root;
+			index[root] = lowLink[root] = counter++;
+			nodeStack[stackSize++] = root;
+			onStack[root] = true;
+			while (callDepth > 0) {
+				int u = callStack[callDepth - 1];
+				if (nextNeighbour[u] < numberOfNodes) {
+					int v = nextNeighbour[u]++;
+					if (!residualNet.hasEdge(u, v))
+						continue;
+					if (index[v] == -1) {
+						index[v] = lowLink[v] = counter++;
+						nodeStack[stackSize++] = v;
+						onStack[v] = true;
+						callStack[callDepth++] = v;
+					} else if (onStack[v])
+						lowLink[u] = Math.min(lowLink[u], index[v]);
+					continue;
+				}
+				//all neighbours of u are done
+				callDepth--;
+				if (callDepth > 0) {
+					int caller = callStack[callDepth - 1];
+					lowLink[caller] = Math.min(lowLink[caller], lowLink[u]);
+				}
+				if (lowLink[u] == index[u]) {
+					int v;
+					do {
+						v = nodeStack[--stackSize];
+						onStack[v] = false;
+						components[v] = componentCount;
+					} while (v != u);
+					componentCount++;
+				}
+			}
+		}
+		return components;
+	}
+}
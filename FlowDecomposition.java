@@ -0,0 +1,310 @@
+package maxflow;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * FlowDecomposition
+ * class decomposing the flow of a net into source-sink paths and cycles.
+ * Edge flows are copied once into compact per-arc arrays; paths are found
+ * lazily by walks along current arcs: an arc is skipped for good when its
+ * remaining flow is used up, so all walks together take
+ * O(m * path length) time.
+ * A walk that meets a node of itself closes a cycle, whose flow is
+ * cancelled (and reported if cycles are requested). Flow left after all
+ * paths forms circulations only, which are reported or dropped.
+ */
+public final class FlowDecomposition implements Iterable<FlowDecomposition.FlowPath> {
+
+	private final int numberOfNodes, source, sink;
+	private final boolean includeCycles;
+	//arcs with positive flow of node u are arcs arcStart[u]..arcStart[u+1]-1
+	private final int[] arcStart, arcHead, arcFlow;
+
+	/**
+	 * Constructor of decomposition of current flow of net; later changes
+	 * of the flow do not affect the decomposition
+	 * @param net net with flow
+	 * @param includeCycles {@code true} if flow cycles shall be reported,
+	 * {@code false} if they shall only be cancelled
+	 */
+	public FlowDecomposition(Net net, boolean includeCycles) {
+		if (net == null)
+			throw new NullPointerException("Net was not defined");
+		numberOfNodes = net.getNumberOfNodes();
+		source = net.getSource();
+		sink = net.getSink();
+		this.includeCycles = includeCycles;
+		Net.Flow flow = net.getFlow();
+		arcStart = new int[numberOfNodes + 1];
+		for (int u = 0; u < numberOfNodes; u++)
+			for (int v = 0; v < numberOfNodes; v++)
+				if (flow.getEdgeFlow(u, v) > 0)
+					arcStart[u + 1]++;
+		for (int u = 0; u < numberOfNodes; u++)
+			arcStart[u + 1] += arcStart[u];
+		arcHead = new int[arcStart[numberOfNodes]];
+		arcFlow = new int[arcHead.length];
+		for (int u = 0, arc = 0; u < numberOfNodes; u++)
+			for (int v = 0; v < numberOfNodes; v++) {
+				int edgeFlow = flow.getEdgeFlow(u, v);
+				if (edgeFlow > 0) {
+					arcHead[arc] = v;
+					arcFlow[arc++] = edgeFlow;
+				}
+			}
+	}
+
+	/**
+	 * Creates iterator computing paths (and cycles) one at a time; every
+	 * iterator decomposes the whole flow again
+	 */
+	@Override
+	public Iterator<FlowPath> iterator() {
+		return new Decomposer();
+	}
+
+	/**
+	 * Writes decomposition to file, one path or cycle per line:
+	 * "P amount node1 node2 ... nodeK" for paths and
+	 * "C amount node1 node2 ... node1" for cycles, with node indices
+	 * shifted by {@link maxflowConstants#INDEX_OFFSET} as in net files.
+	 * Paths are written as they are found, so the decomposition is never
+	 * held in memory.
+	 * @param file file to write
+	 * @return number of lines written
+	 * @throws IOException if file could not be written
+	 */
+	public long write(Path file) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+			return write(writer);
+		}
+	}
+
+	/**
+	 * Writes decomposition in the format of {@link #write(Path)}
+	 * @param writer destination, not closed
+	 * @return number of lines written
+	 * @throws IOException if writing failed
+	 */
+	public long write(Writer writer) throws IOException {
+		long lines = 0;
+		for (FlowPath path : this) {
+			writer.write(path.isCycle() ? 'C' : 'P');
+			writer.write(' ');
+			writer.write(Integer.toString(path.getAmount()));
+			for (int i = 0; i < path.nodes.length; i++) {
+				writer.write(' ');
+				writer.write(Integer.toString(path.nodes[i] + maxflowConstants.INDEX_OFFSET));
+			}
+			writer.write('\n');
+			lines++;
+		}
+		writer.flush();
+		return lines;
+	}
+
+	/**
+	 * State of one decomposition: remaining flow, current arcs and the
+	 * current walk
+	 */
+	private final class Decomposer implements Iterator<FlowPath> {
+		private final int[] remaining = arcFlow.clone();
+		private final int[] currentArc = Arrays.copyOf(arcStart, numberOfNodes);
+		private final int[] walk = new int[numberOfNodes + 1]; //nodes of current walk
+		private final int[] walkArc = new int[numberOfNodes]; //arc leaving walk[i]
+		private final int[] walkPosition = new int[numberOfNodes]; //position of node in walk, -1 if absent
+		private int walkLength;
+		private boolean sourceDone; //true when source has no remaining outflow
+		private int cycleStart; //next node to search for circulations
+		private FlowPath next;
+
+		Decomposer() {
+			Arrays.fill(walkPosition, -1);
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (next == null)
+				next = findNext();
+			return next != null;
+		}
+
+		@Override
+		public FlowPath next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			FlowPath result = next;
+			next = null;
+			return result;
+		}
+
+		/**
+		 * Finds next reported path or cycle; paths from source come first,
+		 * then remaining circulations
+		 * @return path or cycle, {@code null} if flow is decomposed completely
+		 */
+		private FlowPath findNext() {
+			//a walk is continued after a reported cycle
+			while (!sourceDone) {
+				if (walkLength == 0 && findArc(source) == -1) {
+					sourceDone = true;
+					break;
+				}
+				FlowPath found = walkFrom(source);
+				if (found != null)
+					return found;
+			}
+			if (!includeCycles)
+				return null;
+			while (walkLength > 0 || cycleStart < numberOfNodes) {
+				if (walkLength == 0 && findArc(cycleStart) == -1) {
+					cycleStart++;
+					continue;
+				}
+				FlowPath found = walkFrom(cycleStart);
+				if (found != null)
+					return found;
+			}
+			return null;
+		}
+
+		/**
+		 * Extends walk, or starts it at {@code start} if there is none, until
+		 * it reaches sink or closes a reported cycle
+		 * @return path to sink, reported cycle or {@code null} if the walk
+		 * ended at its first node without remaining outflow
+		 */
+		private FlowPath walkFrom(int start) {
+			if (walkLength == 0) {
+				walk[walkLength++] = start;
+				walkPosition[start] = 0;
+			}
+			while (true) {
+				int u = walk[walkLength - 1];
+				int arc = findArc(u);
+				//flow leaving sink belongs to cycles through sink, which are cancelled first
+				if (u == sink && !sourceDone && arc == -1)
+					return takePath();
+				if (arc == -1) {
+					if (walkLength == 1) { //outflow of first node was used up by a cycle
+						clearWalk(0);
+						return null;
+					}
+					//inner nodes of walks have inflow, so this violates conservation
+					throw new ArithmeticException("Flow is not valid at node " + u);
+				}
+				walkArc[walkLength - 1] = arc;
+				int v = arcHead[arc];
+				if (walkPosition[v] != -1) {
+					FlowPath cycle = takeCycle(walkPosition[v]);
+					if (cycle != null)
+						return cycle;
+					continue;
+				}
+				walkPosition[v] = walkLength;
+				walk[walkLength++] = v;
+			}
+		}
+
+		/**
+		 * Gets current arc of node with remaining flow, advancing past used arcs
+		 * @return arc or -1 if node has no remaining outflow
+		 */
+		private int findArc(int u) {
+			while (currentArc[u] < arcStart[u + 1] && remaining[currentArc[u]] == 0)
+				currentArc[u]++;
+			return currentArc[u] < arcStart[u + 1] ? currentArc[u] : -1;
+		}
+
+		/**
+		 * Removes the path walk[0..walkLength-1] from remaining flow
+		 */
+		private FlowPath takePath() {
+			int amount = Integer.MAX_VALUE;
+			for (int i = 0; i < walkLength - 1; i++)
+				amount = Math.min(amount, remaining[walkArc[i]]);
+			for (int i = 0; i < walkLength - 1; i++)
+				remaining[walkArc[i]] -= amount;
+			FlowPath path = new FlowPath(Arrays.copyOf(walk, walkLength), amount, false);
+			clearWalk(0);
+			return path;
+		}
+
+		/**
+		 * Removes the cycle walk[first..walkLength-1] from remaining flow and
+		 * shortens walk to the cycle's first node
+		 * @return cycle if cycles are reported, otherwise {@code null}
+		 */
+		private FlowPath takeCycle(int first) {
+			int amount = Integer.MAX_VALUE;
+			for (int i = first; i < walkLength; i++)
+				amount = Math.min(amount, remaining[walkArc[i]]);
+			for (int i = first; i < walkLength; i++)
+				remaining[walkArc[i]] -= amount;
+			FlowPath cycle = null;
+			if (includeCycles) {
+				int[] nodes = Arrays.copyOfRange(walk, first, walkLength + 1);
+				nodes[nodes.length - 1] = walk[first];
+				cycle = new FlowPath(nodes, amount, true);
+			}
+			clearWalk(first + 1);
+			return cycle;
+		}
+
+		private void clearWalk(int newLength) {
+			for (int i = newLength; i < walkLength; i++)
+				walkPosition[walk[i]] = -1;
+			walkLength = newLength;
+		}
+	}
+
+	/**
+	 * Source-sink path or cycle of a flow decomposition with its flow amount
+	 */
+	public static final class FlowPath {
+		private final int[] nodes;
+		private final int amount;
+		private final boolean cycle;
+
+		private FlowPath(int[] nodes, int amount, boolean cycle) {
+			this.nodes = nodes;
+			this.amount = amount;
+			this.cycle = cycle;
+		}
+
+		/**
+		 * Gets nodes of path from source to sink; for cycles first and
+		 * last node are equal
+		 * @return copy of node indices
+		 */
+		public int[] getNodes() {
+			return nodes.clone();
+		}
+
+		public int getAmount() {
+			return amount;
+		}
+
+		public boolean isCycle() {
+			return cycle;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder pathToStr = new StringBuilder();
+			for (int i = 0; i < nodes.length; i++) {
+				if (i > 0)
+					pathToStr.append(" -> ");
+				pathToStr.append(nodes[i] + maxflowConstants.INDEX_OFFSET);
+			}
+			return pathToStr.append(String.format(" (%d)", amount)).toString();
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package maxflow;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.stream.IntStream;
+
+/**
+ * GraphBuilder
+ * class collecting edges in bulk into primitive arrays and freezing them
+ * into a {@link CompactGraph}. Edges are bucketed by source in linear
+ * time, then the buckets are sorted by target and merged in parallel:
+ * duplicate edges are merged by summing capacities and every edge gets a
+ * paired reverse arc. Edges with capacity 0 and loops are ignored.
+ */
+public final class GraphBuilder {
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private final int numberOfNodes, source, sink;
+	private int[] tails = new int[INITIAL_CAPACITY], heads = new int[INITIAL_CAPACITY];
+	private int[] capacities = new int[INITIAL_CAPACITY];
+	private int numberOfEdges;
+
+	/**
+	 * Constructor of builder
+	 * @param numberOfNodes number of nodes in graph
+	 * @param source index of source vertex
+	 * @param sink index of sink vertex
+	 */
+	public GraphBuilder(int numberOfNodes, int source, int sink) {
+		if (numberOfNodes < maxflowConstants.MIN_NUMBER_OF_NODES)
+			throw new ArithmeticException(
+					String.format("Graph must have at least %d nodes",
+							maxflowConstants.MIN_NUMBER_OF_NODES));
+		this.numberOfNodes = numberOfNodes;
+		if (!indexInBounds(source))
+			throw new ArrayIndexOutOfBoundsException("Bad source index " + source);
+		if (!indexInBounds(sink))
+			throw new ArrayIndexOutOfBoundsException("Bad sink index " + sink);
+		if (source == sink)
+			throw new ArithmeticException("Source and sink must be different");
+		this.source = source;
+		this.sink = sink;
+	}
+
+	private boolean indexInBounds(int index) {
+		return (index >= 0 && index < numberOfNodes);
+	}
+
+	/**
+	 * Adds a single edge
+	 * @param source edge's source
+	 * @param target edge's target
+	 * @param capacity edge's capacity, added to capacity of equal edges
+	 * @return this builder
+	 */
+	public GraphBuilder addEdge(int source, int target, int capacity) {
+		ensureCapacity(numberOfEdges + 1);
+		append(source, target, capacity);
+		return this;
+	}
+
+	/**
+	 * Adds edges (sources[i], targets[i]) with capacity capacities[i]
+	 * @param sources sources of edges
+	 * @param targets targets of edges
+	 * @param capacities capacities of edges
+	 * @return this builder
+	 */
+	public GraphBuilder addEdges(int[] sources, int[] targets, int[] capacities) {
+		if (sources.length != targets.length || sources.length != capacities.length)
+			throw new ArithmeticException("Edge arrays must have equal length");
+		ensureCapacity(numberOfEdges + sources.length);
+		for (int i = 0; i < sources.length; i++)
+			append(sources[i], targets[i], capacities[i]);
+		return this;
+	}
+
+	/**
+	 * Adds edges given as stream of triplets <source target capacity>
+	 * @param triplets stream of edges, length must be a multiple of three
+	 * @return this builder
+	 */
+	public GraphBuilder addEdges(IntStream triplets) {
+		PrimitiveIterator.OfInt iterator = triplets.iterator();
+		while (iterator.hasNext()) {
+			int source = iterator.nextInt();
+			if (!iterator.hasNext())
+				throw new ArithmeticException("Incomplete edge in stream");
+			int target = iterator.nextInt();
+			if (!iterator.hasNext())
+				throw new ArithmeticException("Incomplete edge in stream");
+			ensureCapacity(numberOfEdges + 1);
+			append(source, target, iterator.nextInt());
+		}
+		return this;
+	}
+
+	private void ensureCapacity(int required) {
+		if (required > tails.length) {
+			int length = Math.max(required, 2 * tails.length);
+			tails = Arrays.copyOf(tails, length);
+			heads = Arrays.copyOf(heads, length);
+			capacities = Arrays.copyOf(capacities, length);
+		}
+	}
+
+	private void append(int source, int target, int capacity) {
+		if (!indexInBounds(source))
+			throw new ArrayIndexOutOfBoundsException("Invalid vertex index " + source);
+		if (!indexInBounds(target))
+			throw new ArrayIndexOutOfBoundsException("Invalid vertex index " + target);
+		if (capacity < 0)
+			throw new ArithmeticException("Edge capacity cannot be negative");
+		if (capacity == 0 || source == target)
+			return;
+		tails[numberOfEdges] = source;
+		heads[numberOfEdges] = target;
+		capacities[numberOfEdges] = capacity;
+		numberOfEdges++;
+	}
+
+	/**
+	 * Gets number of edges added so far, before merging duplicates
+	 * @return number of edges
+	 */
+	public int getNumberOfEdges() {
+		return numberOfEdges;
+	}
+
+	/**
+	 * Creates immutable graph of all added edges. The builder stays usable.
+	 * @return compact graph
+	 */
+	public CompactGraph freeze() {
+		//bucket arcs and reverse arcs by tail; an entry is head << 32 | capacity
+		int[] bucketStart = new int[numberOfNodes + 1];
+		for (int e = 0; e < numberOfEdges; e++) {
+			bucketStart[tails[e] + 1]++;
+			bucketStart[heads[e] + 1]++;
+		}
+		for (int u = 0; u < numberOfNodes; u++)
+			bucketStart[u + 1] += bucketStart[u];
+		long[] entries = new long[bucketStart[numberOfNodes]];
+		int[] fill = Arrays.copyOf(bucketStart, numberOfNodes);
+		for (int e = 0; e < numberOfEdges; e++) {
+			entries[fill[tails[e]]++] = (long) heads[e] << 32 | capacities[e];
+			entries[fill[heads[e]]++] = (long) tails[e] << 32;
+		}
+
+		//sort and merge every bucket in place, remember merged length
+		int[] degree = new int[numberOfNodes];
+		IntStream.range(0, numberOfNodes).parallel().forEach(u -> {
+			int begin = bucketStart[u], end = bucketStart[u + 1];
+			Arrays.sort(entries, begin, end);
+			int last = begin - 1;
+			for (int i = begin; i < end; i++) {
+				if (last >= begin && entries[i] >>> 32 == entries[last] >>> 32) {
+					int capacity = Math.addExact((int) entries[last], (int) entries[i]);
+					entries[last] = (entries[last] & 0xFFFFFFFF00000000L) | capacity;
+				} else
+					entries[++last] = entries[i];
+			}
+			degree[u] = last + 1 - begin;
+		});
+
+		int[] arcStart = new int[numberOfNodes + 1];
+		for (int u = 0; u < numberOfNodes; u++)
+			arcStart[u + 1] = arcStart[u] + degree[u];
+		int numberOfArcs = arcStart[numberOfNodes];
+		int[] arcHead = new int[numberOfArcs], arcCapacity = new int[numberOfArcs];
+		int[] arcReverse = new int[numberOfArcs];
+		IntStream.range(0, numberOfNodes).parallel().forEach(u -> {
+			for (int i = 0; i < degree[u]; i++) {
+				long entry = entries[bucketStart[u] + i];
+				arcHead[arcStart[u] + i] = (int) (entry >>> 32);
+				arcCapacity[arcStart[u] + i] = (int) entry;
+			}
+		});
+		//rows are sorted by head: visiting tails in increasing order meets
+		//the arcs into node v in the order of v's row
+		int[] nextReverse = Arrays.copyOf(arcStart, numberOfNodes);
+		for (int u = 0; u < numberOfNodes; u++)
+			for (int arc = arcStart[u]; arc < arcStart[u + 1]; arc++)
+				arcReverse[arc] = nextReverse[arcHead[arc]]++;
+		return new CompactGraph(numberOfNodes, source, sink, arcStart, arcHead, arcCapacity, arcReverse);
+	}
+}
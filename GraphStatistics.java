@@ -0,0 +1,169 @@
+package maxflow;
+
+import java.util.Arrays;
+
+/**
+ * GraphStatistics
+ * class containing cheap statistics of a net, computed in a single pass
+ * over its edges and a breadth first search from source, used to choose
+ * a maxflow algorithm
+ */
+public final class GraphStatistics {
+	private final int numberOfNodes;
+	private final int numberOfEdges;
+	private final int maxDegree;
+	private final int terminalDegree; //smaller of out-degree of source and in-degree of sink
+	private final int minCapacity, maxCapacity;
+	private final double gridFraction; //fraction of nodes with at most 4 symmetric neighbours
+	private final int sourceSinkDistance; //edges on shortest path from source to sink, 0 if none
+	private final boolean unitCapacityBipartite;
+
+	/**
+	 * Computes statistics of net
+	 * @param net net to describe
+	 */
+	public GraphStatistics(Net net) {
+		if (net == null)
+			throw new NullPointerException("Net was not defined");
+		numberOfNodes = net.getNumberOfNodes();
+		int sink = net.getSink();
+		int edges = 0, gridNodes = 0, maxDeg = 0, sinkInDegree = 0;
+		int minCap = Integer.MAX_VALUE, maxCap = 0;
+		//edges are kept as adjacency arrays for the distance search
+		int[] edgeStart = new int[numberOfNodes + 1];
+		int[] edgeHead = new int[Math.max(16, 4 * numberOfNodes)];
+		for (int u = 0; u < numberOfNodes; u++) {
+			int degree = 0, symmetricDegree = 0;
+			for (int v = 0; v < numberOfNodes; v++) {
+				int capacity = net.getEdgeCapacity(u, v);
+				if (capacity == 0)
+					continue;
+				degree++;
+				minCap = Math.min(minCap, capacity);
+				maxCap = Math.max(maxCap, capacity);
+				if (net.getEdgeCapacity(v, u) > 0)
+					symmetricDegree++;
+				if (v == sink)
+					sinkInDegree++;
+				if (edges + degree > edgeHead.length)
+					edgeHead = Arrays.copyOf(edgeHead, 2 * edgeHead.length);
+				edgeHead[edges + degree - 1] = v;
+			}
+			edges += degree;
+			edgeStart[u + 1] = edges;
+			maxDeg = Math.max(maxDeg, degree);
+			if (degree > 0 && degree <= 4 && symmetricDegree == degree)
+				gridNodes++;
+		}
+		numberOfEdges = edges;
+		maxDegree = maxDeg;
+		int source = net.getSource();
+		terminalDegree = Math.min(edgeStart[source + 1] - edgeStart[source], sinkInDegree);
+		minCapacity = edges == 0 ? 0 : minCap;
+		maxCapacity = maxCap;
+		gridFraction = (double) gridNodes / numberOfNodes;
+		sourceSinkDistance = computeDistance(edgeStart, edgeHead, source, sink);
+		unitCapacityBipartite = edges > 0 && HopcroftKarpMaxFlow.isUnitCapacityBipartite(net);
+	}
+
+	/**
+	 * Computes number of edges on a shortest path by breadth first search
+	 * @return distance, 0 if target is unreachable
+	 */
+	private static int computeDistance(int[] edgeStart, int[] edgeHead, int source, int target) {
+		int[] distance = new int[edgeStart.length - 1];
+		Arrays.fill(distance, -1);
+		int[] bfsQueue = new int[distance.length];
+		int head = 0, tail = 0;
+		distance[source] = 0;
+		bfsQueue[tail++] = source;
+		while (head < tail) {
+			int u = bfsQueue[head++];
+			for (int i = edgeStart[u]; i < edgeStart[u + 1]; i++) {
+				int v = edgeHead[i];
+				if (distance[v] != -1)
+					continue;
+				distance[v] = distance[u] + 1;
+				if (v == target)
+					return distance[v];
+				bfsQueue[tail++] = v;
+			}
+		}
+		return 0;
+	}
+
+	public int getNumberOfNodes() {
+		return numberOfNodes;
+	}
+
+	public int getNumberOfEdges() {
+		return numberOfEdges;
+	}
+
+	/**
+	 * Gets density of net
+	 * @return number of edges divided by number of possible edges
+	 */
+	public double getDensity() {
+		return (double) numberOfEdges / ((double) numberOfNodes * (numberOfNodes - 1));
+	}
+
+	public double getMeanDegree() {
+		return (double) numberOfEdges / numberOfNodes;
+	}
+
+	public int getMaxDegree() {
+		return maxDegree;
+	}
+
+	/**
+	 * Gets bound of augmenting paths sharing no terminal edge
+	 * @return smaller of out-degree of source and in-degree of sink
+	 */
+	public int getTerminalDegree() {
+		return terminalDegree;
+	}
+
+	public int getMinCapacity() {
+		return minCapacity;
+	}
+
+	public int getMaxCapacity() {
+		return maxCapacity;
+	}
+
+	public boolean hasUnitCapacities() {
+		return numberOfEdges > 0 && maxCapacity == 1;
+	}
+
+	public boolean isUnitCapacityBipartite() {
+		return unitCapacityBipartite;
+	}
+
+	/**
+	 * Gets grid-likeness of net
+	 * @return fraction of nodes having at most 4 neighbours, all connected in both directions
+	 */
+	public double getGridFraction() {
+		return gridFraction;
+	}
+
+	/**
+	 * Gets depth of the first level graph, i.e. length of the shortest
+	 * augmenting paths
+	 * @return number of edges on shortest path from source to sink, 0 if
+	 * sink is unreachable
+	 */
+	public int getSourceSinkDistance() {
+		return sourceSinkDistance;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("nodes %d, edges %d, density %.4f, degree %.1f (max %d), "
+				+ "terminal degree %d, capacities %d..%d, grid %.2f, distance %d, unit bipartite %b",
+				numberOfNodes, numberOfEdges, getDensity(), getMeanDegree(), maxDegree,
+				terminalDegree, minCapacity, maxCapacity, gridFraction, sourceSinkDistance,
+				unitCapacityBipartite);
+	}
+}
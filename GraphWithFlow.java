@@ -1,5 +1,6 @@
 package maxflow;
 import java.lang.Math;
+import java.util.Arrays;
 
 /**
  * GraphWithFlow
@@ -8,6 +9,8 @@ import java.lang.Math;
 public class GraphWithFlow extends DirectedGraph implements Net {
 	
 	private Flow currentFlow;
+	private long fingerprint; //order independent hash of all edges, maintained by setEdgeCapacity
+	private boolean fingerprintValid = true; //false after direct writes into capacity matrix
 	
 	public GraphWithFlow(int numberOfNodes) {
 		super(numberOfNodes);
@@ -19,6 +22,38 @@ public class GraphWithFlow extends DirectedGraph implements Net {
 		currentFlow = new GraphFlow(numberOfNodes);
 	}
 
+	@Override
+	public void setEdgeCapacity(int source, int target, int capacity) {
+		int oldCapacity = getEdgeCapacity(source, target);
+		super.setEdgeCapacity(source, target, capacity);
+		if (fingerprintValid)
+			fingerprint += CachedMaxFlow.edgeHash(getNumberOfNodes(), source, target, capacity)
+					- CachedMaxFlow.edgeHash(getNumberOfNodes(), source, target, oldCapacity);
+	}
+
+	@Override
+	void capacitiesChanged() {
+		fingerprintValid = false;
+	}
+
+	/**
+	 * Gets fingerprint of graph structure for {@link CachedMaxFlow}: a hash
+	 * over all edges and their capacities that is updated on every capacity
+	 * change. Source and sink are not part of the fingerprint.
+	 * @return fingerprint of graph
+	 */
+	public long getFingerprint() {
+		if (!fingerprintValid) {
+			int numberOfNodes = getNumberOfNodes();
+			int[] capacities = getCapacityMatrix();
+			fingerprint = 0;
+			for (int i = 0; i < capacities.length; i++)
+				fingerprint += CachedMaxFlow.edgeHash(numberOfNodes, i / numberOfNodes, i % numberOfNodes, capacities[i]);
+			fingerprintValid = true;
+		}
+		return fingerprint;
+	}
+
 	@Override
 	public Flow getFlow() {
 		return currentFlow;
@@ -26,25 +61,10 @@ public class GraphWithFlow extends DirectedGraph implements Net {
 
 	@Override
 	public ResidualNet createResidualNet() {
-		ResidualNet newResidualNet = new DirectedGraph(getNumberOfNodes(),getSource(), getSink());
-		for (int u = 0; u<getNumberOfNodes(); u++) 
-			for (int v = 0; v<getNumberOfNodes(); v++) 
-				if (hasEdge(u, v)) {
-					int edgeCapacity = getEdgeCapacity(u, v);
-					int uv_flow = currentFlow.getEdgeFlow(u, v);
-					int restCapasity = edgeCapacity-uv_flow;
-					if (restCapasity>0) //add direct edge with rest capacity
-						newResidualNet.setEdgeCapacity(u, v, restCapasity);
-					if (uv_flow>0) { //add backward edge with capacity of flow
-						
-						if (hasEdge(v, u)) { //if there already exist edge in opposite direction
-							int vu_flow = currentFlow.getEdgeFlow(v, u);
-							newResidualNet.setEdgeCapacity(u, v, restCapasity+vu_flow);
-							newResidualNet.setEdgeCapacity(v, u, getEdgeCapacity(v, u)-vu_flow+uv_flow);
-						} else
-							newResidualNet.setEdgeCapacity(v, u, uv_flow);
-					}
-			}
+		DirectedGraph newResidualNet = new DirectedGraph(getNumberOfNodes(),getSource(), getSink());
+		//residual capacity of (u,v) is c(u,v)-f(u,v)+f(v,u), computed on whole matrices
+		newResidualNet.updateCapacities(residual -> DenseKernels.computeResidual(getCapacityMatrix(),
+				((GraphFlow) currentFlow).flowMatrix, getNumberOfNodes(), residual));
 		return newResidualNet;
 	}
 
@@ -54,10 +74,10 @@ public class GraphWithFlow extends DirectedGraph implements Net {
 	}
 
 	class GraphFlow implements Flow{
-		private int[][] flowMatrix;
+		private final int[] flowMatrix; //row-major like capacities: (u,v) is at u*numberOfNodes+v
 		
 		public GraphFlow(int numberOfNodes) {
-			flowMatrix = new int[numberOfNodes][numberOfNodes];
+			flowMatrix = new int[numberOfNodes * numberOfNodes];
 		}
 		public GraphFlow(Net net) {
 			this(net.getNumberOfNodes());
@@ -69,7 +89,7 @@ public class GraphWithFlow extends DirectedGraph implements Net {
 				throw new ArrayIndexOutOfBoundsException("Invalid flow index " + source);
 			if (!indexInBounds(target))
 				throw new ArrayIndexOutOfBoundsException("Invalid flow index " + target);
-			return flowMatrix[source][target];
+			return flowMatrix[source * getNumberOfNodes() + target];
 		}
 
 		@Override
@@ -79,10 +99,10 @@ public class GraphWithFlow extends DirectedGraph implements Net {
 			int reduction = Math.min(oldTargetSourceFlow, flowAdd);
 			
 			//need to update both (target, source) and (source, target) edges
-			int newFlowTargetSource = flowMatrix[target][source] - reduction;
+			int newFlowTargetSource = oldTargetSourceFlow - reduction;
 			setEdgeFlow(target, source, newFlowTargetSource);
 			
-			int newFlowSourceTarget = flowMatrix[source][target] + flowAdd - reduction;
+			int newFlowSourceTarget = getEdgeFlow(source, target) + flowAdd - reduction;
 			setEdgeFlow(source, target, newFlowSourceTarget);
 		}
 
@@ -95,25 +115,21 @@ public class GraphWithFlow extends DirectedGraph implements Net {
 
 			if (flow<0)
 				throw new ArithmeticException("Flow cannot be negative");
-			flowMatrix[source][target] = flow;
+			flowMatrix[source * getNumberOfNodes() + target] = flow;
 		}
 
 		@Override
 		public boolean isValidFlow() {
-			
-			int errors = 0; //for counting possible errors
+			int numberOfNodes = getNumberOfNodes();
+			//flow must not exceed edge capacity
+			int errors = DenseKernels.countExceeding(flowMatrix, getCapacityMatrix());
 			//arrays to accumulate incoming and outgoing flows for each vertex
-			int[] outFlow = new int[flowMatrix.length];
-			int[] inFlow = new int[flowMatrix.length];
-			
-			for (int u = 0; u<flowMatrix.length; u++) 
-				for (int v = 0; v<flowMatrix.length; v++) {
-					int uv_flow = getEdgeFlow(u, v);
-					outFlow[u] += uv_flow;
-					inFlow[v]+= uv_flow;
-					if (uv_flow>getEdgeCapacity(u, v)) //flow must not exceed edge capacity
-						errors++;
-				}
+			long[] outFlow = new long[numberOfNodes];
+			long[] inFlow = new long[numberOfNodes];
+			for (int u = 0; u<numberOfNodes; u++) {
+				outFlow[u] = DenseKernels.sumRow(flowMatrix, u * numberOfNodes, numberOfNodes);
+				DenseKernels.addRow(flowMatrix, u * numberOfNodes, inFlow);
+			}
 			if (!(outFlow[getSource()]==inFlow[getSink()])) //outgoing flow from source must = incoming flow to sink
 				errors++;
 			for (int nodeIdx =0; nodeIdx<outFlow.length; nodeIdx++) {
@@ -127,17 +143,12 @@ public class GraphWithFlow extends DirectedGraph implements Net {
 
 		@Override
 		public void clear() {
-			for (int i = 0; i<flowMatrix.length; i++) 
-				for (int j = 0; j<flowMatrix.length; j++)
-					flowMatrix[i][j] = 0;
+			Arrays.fill(flowMatrix, 0);
 		}
 
 		@Override
 		public int getTotalFlow() {
-			int totalFlow = 0;
-			for (int v = 0; v<flowMatrix.length; v++) 
-					totalFlow += flowMatrix[getSource()][v];
-			return totalFlow;
+			return (int) DenseKernels.sumRow(flowMatrix, getSource() * getNumberOfNodes(), getNumberOfNodes());
 		}
 		
 		@Override
@@ -145,10 +156,10 @@ public class GraphWithFlow extends DirectedGraph implements Net {
 			String flowToStr = "";
 			for (int i = 0; i < getNumberOfNodes(); i++) 
 				for (int j = 0; j < getNumberOfNodes(); j++)
-					if (flowMatrix[i][j]>0)
+					if (getEdgeFlow(i, j)>0)
 						flowToStr+=String.format("(%d, %d) (%d/%d)\n", 
 								i+maxflowConstants.INDEX_OFFSET, j+maxflowConstants.INDEX_OFFSET, 
-								flowMatrix[i][j], getEdgeCapacity(i,j));
+								getEdgeFlow(i, j), getEdgeCapacity(i,j));
 					
 			return flowToStr;
 		}
@@ -0,0 +1,320 @@
+package maxflow;
+
+import java.util.Arrays;
+
+/**
+ * HopcroftKarpMaxFlow
+ * class implementing Hopcroft-Karp maxflow algorithm for unit-capacity
+ * bipartite nets, i.e. nets where source is connected to left nodes only,
+ * sink is connected from right nodes only, all other edges lead from left
+ * to right nodes and all capacities equal 1.
+ * Nets of other shape are solved by {@link DinicMaxFlow}.
+ */
+public final class HopcroftKarpMaxFlow implements MaxFlow {
+
+	private static final int FREE = -1; //marks unmatched node
+	private static final int LEFT = 1, RIGHT = 2; //node sides in bipartite net
+
+	private final int[] declaredLeft, declaredRight; //declared node sides or null
+	private final DinicMaxFlow fallback = new DinicMaxFlow();
+
+	//compact adjacency of current net: edges of left node l are adjacency[adjacencyStart[l]..adjacencyStart[l+1]-1]
+	private int[] leftNodes, rightNodes;
+	private int[] adjacencyStart, adjacency;
+	private int[] leftMatch, rightMatch; //matched partner index or FREE
+	private int[] distance, currentArc; //bfs-level of left nodes and dfs edge pointers
+	private int phaseCount; //number of phases of last computation
+	private boolean fallbackUsed; //true if last computation was done by fallback
+
+	/**
+	 * Constructor of engine that detects bipartite shape of each net
+	 */
+	public HopcroftKarpMaxFlow() {
+		declaredLeft = null;
+		declaredRight = null;
+	}
+
+	/**
+	 * Constructor of engine for nets with explicitly declared bipartite shape.
+	 * Shape and unit capacities are not checked.
+	 * @param leftNodes nodes connected from source
+	 * @param rightNodes nodes connected to sink
+	 */
+	public HopcroftKarpMaxFlow(int[] leftNodes, int[] rightNodes) {
+		if (leftNodes == null || rightNodes == null)
+			throw new NullPointerException("Node sides were not defined");
+		declaredLeft = leftNodes.clone();
+		declaredRight = rightNodes.clone();
+	}
+
+	@Override
+	public void computeMaxFlow(Net net) {
+		if (net == null)
+			throw new NullPointerException("Net was not defined");
+		fallbackUsed = !buildAdjacency(net);
+		if (fallbackUsed) {
+			fallback.computeMaxFlow(net);
+			phaseCount = fallback.getPhaseCount();
+			return;
+		}
+		phaseCount = 0;
+		readMatching(net);
+		computeGreedyMatching();
+		while (computePhase())
+			phaseCount++;
+		writeMatching(net);
+	}
+
+	@Override
+	public void step(Net net) {
+		if (net == null)
+			throw new NullPointerException("Net was not defined");
+		fallbackUsed = !buildAdjacency(net);
+		if (fallbackUsed) {
+			int fallbackPhases = fallback.getPhaseCount();
+			fallback.step(net);
+			phaseCount += fallback.getPhaseCount() - fallbackPhases;
+			return;
+		}
+		readMatching(net);
+		if (computePhase())
+			phaseCount++;
+		writeMatching(net);
+	}
+
+	/**
+	 * Gets number of augmenting phases performed by the last call of 
+	 * {@link #computeMaxFlow(Net)} and all {@link #step(Net)} calls after it
+	 * @return number of phases
+	 */
+	public int getPhaseCount() {
+		return phaseCount;
+	}
+
+	/**
+	 * Checks if the last computation or step was done by
+	 * {@link DinicMaxFlow} because the net is not unit-capacity bipartite
+	 * @return {@code true} if and only if fallback was used
+	 */
+	public boolean isFallbackUsed() {
+		return fallbackUsed;
+	}
+
+	/**
+	 * Checks if {@code net} is a unit-capacity bipartite net
+	 * @param net net to check
+	 * @return {@code true} if and only if net can be solved by Hopcroft-Karp algorithm
+	 */
+	public static boolean isUnitCapacityBipartite(Net net) {
+		return computeSides(net) != null;
+	}
+
+	/**
+	 * Assigns sides to nodes of net
+	 * @param net net to check
+	 * @return array with LEFT, RIGHT or 0 for each node,
+	 * or {@code null} if net is not unit-capacity bipartite
+	 */
+	private static int[] computeSides(Net net) {
+		int source = net.getSource(), sink = net.getSink();
+		int[] side = new int[net.getNumberOfNodes()];
+		for (int u = 0; u < net.getNumberOfNodes(); u++)
+			for (int v = 0; v < net.getNumberOfNodes(); v++) {
+				int capacity = net.getEdgeCapacity(u, v);
+				if (capacity == 0)
+					continue;
+				if (capacity != 1 || v == source || u == sink || (u == source && v == sink))
+					return null;
+				if (u == source) {
+					if (!assignSide(side, v, LEFT))
+						return null;
+				} else if (v == sink) {
+					if (!assignSide(side, u, RIGHT))
+						return null;
+				} else if (!assignSide(side, u, LEFT) || !assignSide(side, v, RIGHT))
+					return null;
+			}
+		return side;
+	}
+
+	private static boolean assignSide(int[] side, int node, int nodeSide) {
+		if (side[node] != 0 && side[node] != nodeSide)
+			return false;
+		side[node] = nodeSide;
+		return true;
+	}
+
+	/**
+	 * Builds compact adjacency of left nodes connected from source
+	 * to right nodes connected to sink
+	 * @param net net to build adjacency for
+	 * @return {@code false} if net is not unit-capacity bipartite
+	 */
+	private boolean buildAdjacency(Net net) {
+		int source = net.getSource(), sink = net.getSink();
+		int[] left = declaredLeft, right = declaredRight;
+		if (left == null) {
+			int[] side = computeSides(net);
+			if (side == null)
+				return false;
+			int leftCount = 0, rightCount = 0;
+			for (int node = 0; node < side.length; node++)
+				if (side[node] == LEFT)
+					leftCount++;
+				else if (side[node] == RIGHT)
+					rightCount++;
+			left = new int[leftCount];
+			right = new int[rightCount];
+			leftCount = 0;
+			rightCount = 0;
+			for (int node = 0; node < side.length; node++)
+				if (side[node] == LEFT)
+					left[leftCount++] = node;
+				else if (side[node] == RIGHT)
+					right[rightCount++] = node;
+		}
+
+		//nodes without source or sink edge cannot carry flow
+		leftNodes = Arrays.stream(left).filter(u -> net.hasEdge(source, u)).toArray();
+		rightNodes = Arrays.stream(right).filter(v -> net.hasEdge(v, sink)).toArray();
+
+		adjacencyStart = new int[leftNodes.length + 1];
+		int[] buffer = new int[rightNodes.length];
+		int[] edges = new int[Math.max(16, leftNodes.length)];
+		int edgeCount = 0;
+		for (int l = 0; l < leftNodes.length; l++) {
+			adjacencyStart[l] = edgeCount;
+			int degree = 0;
+			for (int r = 0; r < rightNodes.length; r++)
+				if (net.hasEdge(leftNodes[l], rightNodes[r]))
+					buffer[degree++] = r;
+			if (edgeCount + degree > edges.length)
+				edges = Arrays.copyOf(edges, Math.max(2*edges.length, edgeCount + degree));
+			System.arraycopy(buffer, 0, edges, edgeCount, degree);
+			edgeCount += degree;
+		}
+		adjacencyStart[leftNodes.length] = edgeCount;
+		adjacency = edges;
+
+		leftMatch = new int[leftNodes.length];
+		rightMatch = new int[rightNodes.length];
+		distance = new int[leftNodes.length];
+		currentArc = new int[leftNodes.length];
+		return true;
+	}
+
+	/**
+	 * Takes matching from current flow of net
+	 * @param net net whose flow is read
+	 */
+	private void readMatching(Net net) {
+		Arrays.fill(leftMatch, FREE);
+		Arrays.fill(rightMatch, FREE);
+		Net.Flow flow = net.getFlow();
+		for (int l = 0; l < leftNodes.length; l++)
+			for (int e = adjacencyStart[l]; e < adjacencyStart[l+1]; e++) {
+				int r = adjacency[e];
+				if (rightMatch[r] == FREE && flow.getEdgeFlow(leftNodes[l], rightNodes[r]) > 0) {
+					leftMatch[l] = r;
+					rightMatch[r] = l;
+					break;
+				}
+			}
+	}
+
+	/**
+	 * Replaces flow of net by flow of current matching
+	 * @param net net whose flow is written
+	 */
+	private void writeMatching(Net net) {
+		Net.Flow flow = net.getFlow();
+		flow.clear();
+		for (int l = 0; l < leftNodes.length; l++)
+			if (leftMatch[l] != FREE) {
+				int u = leftNodes[l], v = rightNodes[leftMatch[l]];
+				flow.setEdgeFlow(net.getSource(), u, 1);
+				flow.setEdgeFlow(u, v, 1);
+				flow.setEdgeFlow(v, net.getSink(), 1);
+			}
+	}
+
+	/**
+	 * Matches every free left node to its first free neighbour
+	 */
+	private void computeGreedyMatching() {
+		for (int l = 0; l < leftNodes.length; l++)
+			if (leftMatch[l] == FREE)
+				for (int e = adjacencyStart[l]; e < adjacencyStart[l+1]; e++)
+					if (rightMatch[adjacency[e]] == FREE) {
+						leftMatch[l] = adjacency[e];
+						rightMatch[adjacency[e]] = l;
+						break;
+					}
+	}
+
+	/**
+	 * Computes one phase: bfs-levels from free left nodes and a maximal set
+	 * of vertex-disjoint shortest augmenting paths
+	 * @return {@code true} if matching was augmented
+	 */
+	private boolean computePhase() {
+		if (!computeDistances())
+			return false;
+		for (int l = 0; l < leftNodes.length; l++)
+			currentArc[l] = adjacencyStart[l];
+		boolean augmented = false;
+		for (int l = 0; l < leftNodes.length; l++)
+			if (leftMatch[l] == FREE && augment(l))
+				augmented = true;
+		return augmented;
+	}
+
+	/**
+	 * Assigns bfs-levels to left nodes, starting with free left nodes at level 0
+	 * @return {@code true} if a free right node was reached
+	 */
+	private boolean computeDistances() {
+		int[] queue = new int[leftNodes.length];
+		int head = 0, tail = 0;
+		for (int l = 0; l < leftNodes.length; l++)
+			if (leftMatch[l] == FREE) {
+				distance[l] = 0;
+				queue[tail++] = l;
+			} else
+				distance[l] = Integer.MAX_VALUE;
+
+		boolean freeRightReached = false;
+		while (head < tail) {
+			int l = queue[head++];
+			for (int e = adjacencyStart[l]; e < adjacencyStart[l+1]; e++) {
+				int next = rightMatch[adjacency[e]];
+				if (next == FREE)
+					freeRightReached = true;
+				else if (distance[next] == Integer.MAX_VALUE) {
+					distance[next] = distance[l] + 1;
+					queue[tail++] = next;
+				}
+			}
+		}
+		return freeRightReached;
+	}
+
+	/**
+	 * Searches augmenting path from left node along bfs-levels and flips it
+	 * @param l index of left node
+	 * @return {@code true} if path was found
+	 */
+	private boolean augment(int l) {
+		for (; currentArc[l] < adjacencyStart[l+1]; currentArc[l]++) {
+			int r = adjacency[currentArc[l]];
+			int next = rightMatch[r];
+			if (next == FREE || (distance[next] == distance[l] + 1 && augment(next))) {
+				leftMatch[l] = r;
+				rightMatch[r] = l;
+				return true;
+			}
+		}
+		distance[l] = Integer.MAX_VALUE; //dead end, never visit again in this phase
+		return false;
+	}
+}
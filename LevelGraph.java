@@ -1,8 +1,8 @@
 package maxflow;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
 
 /**
  * LevelGraph
@@ -12,6 +12,11 @@ import java.util.Queue;
  */
 public class LevelGraph extends DirectedGraph implements NiveauGraph {
 
+	//graphs with less nodes are leveled on a single thread
+	private static final int PARALLEL_THRESHOLD = 256;
+	//bfs switches to bottom-up when frontier is bigger than 1/ALPHA of unvisited nodes
+	private static final int ALPHA = 4;
+
 	private int[] nodesLevel; // to assign bfs-level to each node
 
 	/**
@@ -21,60 +26,131 @@ public class LevelGraph extends DirectedGraph implements NiveauGraph {
 	public LevelGraph(ResidualNet fromGraph) {
 		super(fromGraph.getNumberOfNodes(),fromGraph.getSource(),fromGraph.getSink());
 
-		/*assigning bfs-levels to  nodes;
-		 * enumeration of levels starts from 0
-		 * level -1 means node is unvisited
-		 */
-		nodesLevel = new int[getNumberOfNodes()];
-		for (int nodeIdx = 0; nodeIdx<getNumberOfNodes();nodeIdx++)
-			nodesLevel[nodeIdx] = -1;
-		nodesLevel[getSource()] = 0;
-
-		boolean sinkReached = false; //flag to mark that sink is reached from source
-
-		//constructing level-graph by BFS-algorithm
+		boolean parallel = getNumberOfNodes() >= PARALLEL_THRESHOLD;
+		//matrix graphs are scanned directly, other graphs through hasEdge
+		int[] capacities = fromGraph instanceof DirectedGraph
+				? ((DirectedGraph) fromGraph).getCapacityMatrix() : null;
+		nodesLevel = computeLevels(fromGraph, capacities, parallel);
 
-		Queue<Integer> bfsQueue = new LinkedList<>(); //queue to keep nodes for bfs-search
-		bfsQueue.add(getSource()); //add source node in beginning of queue
+		//edges from nodes with level >= sink level are redundant
+		int sinkLvl = nodesLevel[getSink()];
+		int maxLvl = sinkLvl == -1 ? Integer.MAX_VALUE : sinkLvl;
+
+		//constructing level-graph: keep edges leading to the next level
+		//every node writes only its own row, so rows can be filled concurrently
+		int numberOfNodes = getNumberOfNodes();
+		updateCapacities(levelCapacities -> stream(IntStream.range(0, numberOfNodes), parallel).forEach(u -> {
+			int uLevel = nodesLevel[u];
+			if (uLevel == -1 || uLevel >= maxLvl)
+				return;
+			for (int v = 0; v < numberOfNodes; v++)
+				if (nodesLevel[v] == uLevel + 1)
+					levelCapacities[u * numberOfNodes + v] = capacities != null
+							? capacities[u * numberOfNodes + v] : fromGraph.getEdgeCapacity(u, v);
+		}));
+	}
 
-		//current bfs-level
-		//bfs search goes until queue is empty or until sink was reached
-		while (bfsQueue.size()>0 && !sinkReached) {
-			int currentNode = bfsQueue.poll(); //take node from the top of queue
-			int currentLevel = nodesLevel[currentNode];
+	/**
+	 * Checks if edge (u,v) exists, reading capacity matrix directly if it is given
+	 */
+	private static boolean hasEdge(ResidualNet graph, int[] capacities, int u, int v) {
+		return capacities != null ? capacities[u * graph.getNumberOfNodes() + v] > 0 : graph.hasEdge(u, v);
+	}
 
-			if (currentNode == getSink()) { //if the search reached sink- stop the search;
-				removeRedundantEdges();
-				sinkReached = true;
-				break;
+	/**
+	 * Assigns bfs-levels to nodes by frontier-based bfs, which expands
+	 * a frontier top-down (frontier nodes claim unvisited neighbours) or
+	 * bottom-up (unvisited nodes look for a parent in frontier),
+	 * whichever is expected to scan less nodes.
+	 * Enumeration of levels starts from 0, level -1 means node is unvisited.
+	 * Search stops after the level containing sink.
+	 * @param fromGraph graph to search
+	 * @param capacities capacity matrix of fromGraph or {@code null}
+	 * @param parallel {@code true} if frontier shall be processed by fork-join pool
+	 * @return level of each node
+	 */
+	private int[] computeLevels(ResidualNet fromGraph, int[] capacities, boolean parallel) {
+		int numberOfNodes = getNumberOfNodes();
+		AtomicIntegerArray levels = new AtomicIntegerArray(numberOfNodes);
+		for (int nodeIdx = 0; nodeIdx < numberOfNodes; nodeIdx++)
+			levels.set(nodeIdx, -1);
+		levels.set(getSource(), 0);
+
+		int[] frontier = {getSource()};
+		int unvisitedCount = numberOfNodes - 1;
+		int currentLevel = 0;
+		while (frontier.length > 0 && levels.get(getSink()) == -1) {
+			int nextLevel = currentLevel + 1;
+			if ((long) frontier.length * ALPHA > unvisitedCount) {
+				//bottom-up: only thread of v writes level of v; the column is
+				//strided but the scan stops at the first parent, which measured
+				//cheaper than transposing the n x n capacities every phase
+				int level = currentLevel;
+				stream(IntStream.range(0, numberOfNodes), parallel).forEach(v -> {
+					if (levels.get(v) != -1)
+						return;
+					for (int u = 0; u < numberOfNodes; u++)
+						if (hasEdge(fromGraph, capacities, u, v) && levels.get(u) == level) {
+							levels.set(v, nextLevel);
+							return;
+						}
+				});
+			} else {
+				//top-down: unvisited neighbours are claimed atomically
+				stream(IntStream.of(frontier), parallel).forEach(u -> {
+					for (int v = 0; v < numberOfNodes; v++)
+						if (hasEdge(fromGraph, capacities, u, v) && levels.get(v) == -1)
+							levels.compareAndSet(v, -1, nextLevel);
+				});
 			}
+			frontier = stream(IntStream.range(0, numberOfNodes), parallel)
+					.filter(v -> levels.get(v) == nextLevel).toArray();
+			unvisitedCount -= frontier.length;
+			currentLevel = nextLevel;
+		}
 
+		int[] result = new int[numberOfNodes];
+		for (int nodeIdx = 0; nodeIdx < numberOfNodes; nodeIdx++)
+			result[nodeIdx] = levels.get(nodeIdx);
+		return result;
+	}
 
-			//iterate through unvisited nodes
-			for (int node = 0; node < getNumberOfNodes(); node++) {
-				if (fromGraph.hasEdge(currentNode, node)) {
-					if (nodesLevel[node] == -1) //if node is unvisited
-					{
-						nodesLevel[node] = currentLevel + 1; //assign level
-						bfsQueue.add(node);					//add in queue
-					}
-					//if node level > than level of current node add new edge
-					if (nodesLevel[node] > currentLevel)
-						setEdgeCapacity(currentNode, node, fromGraph.getEdgeCapacity(currentNode, node));
-				}
-			}
-		}
+	private static IntStream stream(IntStream nodes, boolean parallel) {
+		return parallel ? nodes.parallel() : nodes;
 	}
 
-	private void removeRedundantEdges() {
+	/**
+	 * Gets bfs-level of node
+	 * @param node index of node
+	 * @return level of node, -1 if node was not reached
+	 */
+	public int getNodeLevel(int node) {
+		if (!indexInBounds(node))
+			throw new ArrayIndexOutOfBoundsException("Invalid vertex index " + node);
+		return nodesLevel[node];
+	}
+
+	/**
+	 * Computes the smallest capacity of cuts between two consecutive levels.
+	 * Nodes of level k only have edges to level k+1, so the cut between
+	 * levels k and k+1 consists of all edges leaving level k.
+	 * As in the underlying residual net no edge skips a level, this is
+	 * also the residual capacity of the cut in the residual net.
+	 * @return capacity of smallest cut, or {@code Long.MAX_VALUE} if sink is unreachable
+	 */
+	public long computeLevelCutCapacity() {
 		int sinkLvl = nodesLevel[getSink()];
-		for (int u = 0; u < getNumberOfNodes(); u++) {
-			if (nodesLevel[u]>=sinkLvl) { //for nodes those lvl >= than sink lvl
-				for (int v = 0; v < getNumberOfNodes(); v++)  //remove all edges from those nodes
-					if (hasEdge(u, v))
-						setEdgeCapacity(u, v, 0);
-			}
-		}
+		if (sinkLvl == -1)
+			return Long.MAX_VALUE;
+		long[] levelCapacity = new long[sinkLvl];
+		int numberOfNodes = getNumberOfNodes();
+		for (int u = 0; u < numberOfNodes; u++)
+			if (nodesLevel[u] >= 0 && nodesLevel[u] < sinkLvl)
+				levelCapacity[nodesLevel[u]] += DenseKernels.sumRow(getCapacityMatrix(), u * numberOfNodes, numberOfNodes);
+		long minCapacity = Long.MAX_VALUE;
+		for (long capacity : levelCapacity)
+			minCapacity = Math.min(minCapacity, capacity);
+		return minCapacity;
 	}
 
 	@Override
@@ -91,18 +167,18 @@ public class LevelGraph extends DirectedGraph implements NiveauGraph {
 
 		//Compute path backwards going from sink to source
 		int nodeV = getSink();
+		int numberOfNodes = getNumberOfNodes();
+		int[] capacities = getCapacityMatrix();
 		while(nodeLevel>0)
 		{
 			int biggestCapacity = 0;
 			int nodeInPath = -1;
-			for (int nodeU = 0; nodeU<getNumberOfNodes(); nodeU++) {
+			for (int nodeU = 0; nodeU<numberOfNodes; nodeU++) {
 				//find edge(u,v) that has biggest capacity
-				if (hasEdge(nodeU, nodeV)) {
-					int uvCapacity = getEdgeCapacity(nodeU, nodeV);
-					if (uvCapacity > biggestCapacity) {
-						biggestCapacity = uvCapacity;
-						nodeInPath = nodeU;
-					}
+				int uvCapacity = capacities[nodeU * numberOfNodes + nodeV];
+				if (uvCapacity > biggestCapacity) {
+					biggestCapacity = uvCapacity;
+					nodeInPath = nodeU;
 				}
 			}
 			if (nodeInPath!=-1) { //if next node in path found - add it to path and continue
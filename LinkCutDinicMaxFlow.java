@@ -0,0 +1,151 @@
+package maxflow;
+
+import java.util.Arrays;
+
+/**
+ * LinkCutDinicMaxFlow
+ * class implementing Dinic maxflow algorithm whose blocking flows are
+ * computed with dynamic trees (Sleator-Tarjan): the blocking flow itself
+ * costs O(m log n) instead of O(m * path length). Each phase still builds
+ * the residual net and the level graph as n x n matrices and copies level
+ * graph edges into compact arrays by two O(n^2) scans, so a phase costs
+ * O(n^2 + m log n) and the gain shows only when paths are long.
+ * Flow is written back into the net at the end of each phase.
+ * Phases are driven by {@link DinicMaxFlow} with this blocking flow strategy.
+ */
+public final class LinkCutDinicMaxFlow implements MaxFlow {
+
+	private final DinicMaxFlow dinic = new DinicMaxFlow(LinkCutDinicMaxFlow::computeBlockingFlow);
+
+	@Override
+	public void computeMaxFlow(Net net) {
+		dinic.computeMaxFlow(net);
+	}
+
+	/**
+	 * Calculates a maximum flow until {@code budget} is exhausted, see
+	 * {@link DinicMaxFlow#computeMaxFlow(Net, SolveBudget)}
+	 * @param net net whose flow is updated
+	 * @param budget limit of the computation
+	 * @return flow value reached and upper bound of maximum flow value
+	 */
+	public BoundedFlow computeMaxFlow(Net net, SolveBudget budget) {
+		return dinic.computeMaxFlow(net, budget);
+	}
+
+	@Override
+	public void step(Net net) {
+		dinic.step(net);
+	}
+
+	/**
+	 * Gets number of blocking flow phases performed by the last call of
+	 * {@link #computeMaxFlow(Net)} and all {@link #step(Net)} calls after it
+	 * @return number of phases
+	 */
+	public int getPhaseCount() {
+		return dinic.getPhaseCount();
+	}
+
+	/**
+	 * Computes blocking flow in {@code levelGraph}, and updates flow in net.
+	 * Every node is linked to the head of its current edge; the tree path
+	 * from source then is a path of the level graph. When it reaches sink
+	 * the path is augmented by its minimal cost and saturated edges are cut,
+	 * when it ends in a dead end the dead node is removed with all its
+	 * incoming tree edges.
+	 * @param net net whose flow is updated
+	 * @param levelGraph level graph of the residual net of {@code net}
+	 * @param budget checked before each augmentation
+	 */
+	private static void computeBlockingFlow(Net net, NiveauGraph levelGraph, SolveBudget budget) {
+		int numberOfNodes = levelGraph.getNumberOfNodes();
+		int source = levelGraph.getSource(), sink = levelGraph.getSink();
+
+		//outgoing edges of u are edges[edgeStart[u]..edgeStart[u+1]-1]
+		int[] edgeStart = new int[numberOfNodes + 1];
+		for (int u = 0; u < numberOfNodes; u++)
+			for (int v = 0; v < numberOfNodes; v++)
+				if (levelGraph.hasEdge(u, v))
+					edgeStart[u + 1]++;
+		for (int u = 0; u < numberOfNodes; u++)
+			edgeStart[u + 1] += edgeStart[u];
+		int numberOfEdges = edgeStart[numberOfNodes];
+		int[] edgeTail = new int[numberOfEdges], edgeHead = new int[numberOfEdges];
+		int[] capacity = new int[numberOfEdges];
+		int[] inDegree = new int[numberOfNodes];
+		for (int u = 0, e = 0; u < numberOfNodes; u++)
+			for (int v = 0; v < numberOfNodes; v++)
+				if (levelGraph.hasEdge(u, v)) {
+					edgeTail[e] = u;
+					edgeHead[e] = v;
+					capacity[e] = levelGraph.getEdgeCapacity(u, v);
+					inDegree[v]++;
+					e++;
+				}
+		//incoming edges of v are incoming[incomingStart[v]..incomingStart[v+1]-1]
+		int[] incomingStart = new int[numberOfNodes + 1];
+		for (int v = 0; v < numberOfNodes; v++)
+			incomingStart[v + 1] = incomingStart[v] + inDegree[v];
+		int[] incoming = new int[numberOfEdges];
+		int[] fill = Arrays.copyOf(incomingStart, numberOfNodes);
+		for (int e = 0; e < numberOfEdges; e++)
+			incoming[fill[edgeHead[e]]++] = e;
+
+		int[] currentEdge = Arrays.copyOf(edgeStart, numberOfNodes);
+		int[] linkedEdge = new int[numberOfNodes]; //edge to tree parent, or -1
+		Arrays.fill(linkedEdge, -1);
+		boolean[] dead = new boolean[numberOfNodes];
+		long[] edgeFlow = new long[numberOfEdges];
+		DynamicTrees trees = new DynamicTrees(numberOfNodes);
+
+		while (true) {
+			int root = trees.findRoot(source);
+			if (root == sink) {
+				if (budget.isExhausted())
+					break;
+				//augment tree path and cut saturated edges
+				trees.addPathCost(source, -trees.findPathMinCost(source));
+				while (trees.findPathMinCost(source) == 0) {
+					int u = trees.findPathMinNode(source);
+					int e = linkedEdge[u];
+					edgeFlow[e] = capacity[e];
+					trees.cut(u);
+					linkedEdge[u] = -1;
+					currentEdge[u]++;
+				}
+				continue;
+			}
+			while (currentEdge[root] < edgeStart[root + 1] && dead[edgeHead[currentEdge[root]]])
+				currentEdge[root]++;
+			if (currentEdge[root] < edgeStart[root + 1]) { //extend path
+				int e = currentEdge[root];
+				trees.link(root, edgeHead[e], capacity[e]);
+				linkedEdge[root] = e;
+				continue;
+			}
+			if (root == source) //source is dead end, flow is blocking
+				break;
+			//remove dead end with its incoming tree edges
+			dead[root] = true;
+			for (int i = incomingStart[root]; i < incomingStart[root + 1]; i++) {
+				int e = incoming[i];
+				int u = edgeTail[e];
+				if (linkedEdge[u] == e) {
+					edgeFlow[e] = capacity[e] - trees.getCost(u);
+					trees.cut(u);
+					linkedEdge[u] = -1;
+					currentEdge[u]++;
+				}
+			}
+		}
+		for (int u = 0; u < numberOfNodes; u++)
+			if (linkedEdge[u] != -1)
+				edgeFlow[linkedEdge[u]] = capacity[linkedEdge[u]] - trees.getCost(u);
+
+		Net.Flow graphFlow = net.getFlow();
+		for (int e = 0; e < numberOfEdges; e++)
+			if (edgeFlow[e] > 0)
+				graphFlow.addEdgeFlow(edgeTail[e], edgeHead[e], (int) edgeFlow[e]);
+	}
+}
@@ -0,0 +1,452 @@
+package maxflow;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * ParametricMaxFlow
+ * class computing maximum flows of a net whose capacities depend on an
+ * integer parameter lambda: capacity of edge (source, v) is
+ * max(0, c(source, v) + sourceSlope[v] * lambda), capacity of edge (v, sink)
+ * is max(0, c(v, sink) - sinkSlope[v] * lambda), with non-negative slopes,
+ * and all other capacities are constant.
+ *
+ * Following Gallo, Grigoriadis and Tarjan, preflow and labels of a
+ * push-relabel computation stay valid when lambda grows, so all values of
+ * lambda are solved by continuing one computation: source edges of
+ * unfinished nodes are saturated again, flow on shrunk sink edges is
+ * turned back into excess, and the discharge goes on with the old labels.
+ * Source sides of the maximal minimum cuts are nested, growing with lambda.
+ */
+public final class ParametricMaxFlow {
+
+	private final int numberOfNodes, source, sink;
+	private final long[] sourceBase, sourceSlope, sinkBase, sinkSlope;
+
+	//arcs in pairs: arc a and a^1 are reverse to each other
+	//arcs of node u are adjacency[arcStart[u]..arcStart[u+1]-1]
+	private final int[] arcStart, adjacency, arcHead;
+	private final long[] constantCapacity; //capacity of non-parametric arcs
+	private final int[] sourceArc, sinkArc; //arc (source, v) and (v, sink), or -1
+
+	/**
+	 * Constructor of parametric net
+	 * @param net net giving constant capacities and capacities at lambda 0
+	 * @param sourceSlopes growth of capacity of edge (source, v) per unit of lambda
+	 * @param sinkSlopes decrease of capacity of edge (v, sink) per unit of lambda
+	 */
+	public ParametricMaxFlow(Net net, long[] sourceSlopes, long[] sinkSlopes) {
+		if (net == null)
+			throw new NullPointerException("Net was not defined");
+		numberOfNodes = net.getNumberOfNodes();
+		if (sourceSlopes.length != numberOfNodes || sinkSlopes.length != numberOfNodes)
+			throw new ArithmeticException("Slopes must be given for every node");
+		source = net.getSource();
+		sink = net.getSink();
+		sourceBase = new long[numberOfNodes];
+		sinkBase = new long[numberOfNodes];
+		sourceSlope = sourceSlopes.clone();
+		sinkSlope = sinkSlopes.clone();
+		for (int v = 0; v < numberOfNodes; v++) {
+			if (sourceSlope[v] < 0 || sinkSlope[v] < 0)
+				throw new ArithmeticException("Slopes cannot be negative");
+			sourceBase[v] = net.getEdgeCapacity(source, v);
+			sinkBase[v] = net.getEdgeCapacity(v, sink);
+		}
+		//edge (source, sink) is never parametric
+		sourceSlope[sink] = 0;
+		sinkSlope[source] = 0;
+
+		//count arcs of every node pair connected in either direction
+		int[] degree = new int[numberOfNodes];
+		for (int u = 0; u < numberOfNodes; u++)
+			for (int v = u + 1; v < numberOfNodes; v++)
+				if (isConnected(net, u, v)) {
+					degree[u]++;
+					degree[v]++;
+				}
+		arcStart = new int[numberOfNodes + 1];
+		for (int u = 0; u < numberOfNodes; u++)
+			arcStart[u + 1] = arcStart[u] + degree[u];
+		int numberOfArcs = arcStart[numberOfNodes];
+		adjacency = new int[numberOfArcs];
+		arcHead = new int[numberOfArcs];
+		constantCapacity = new long[numberOfArcs];
+		sourceArc = new int[numberOfNodes];
+		sinkArc = new int[numberOfNodes];
+		Arrays.fill(sourceArc, -1);
+		Arrays.fill(sinkArc, -1);
+		int[] fill = Arrays.copyOf(arcStart, numberOfNodes);
+		int arc = 0;
+		for (int u = 0; u < numberOfNodes; u++)
+			for (int v = u + 1; v < numberOfNodes; v++)
+				if (isConnected(net, u, v)) {
+					arcHead[arc] = v;
+					constantCapacity[arc] = net.getEdgeCapacity(u, v);
+					arcHead[arc + 1] = u;
+					constantCapacity[arc + 1] = net.getEdgeCapacity(v, u);
+					adjacency[fill[u]++] = arc;
+					adjacency[fill[v]++] = arc + 1;
+					registerParametricArc(u, v, arc);
+					registerParametricArc(v, u, arc + 1);
+					arc += 2;
+				}
+	}
+
+	private boolean isConnected(Net net, int u, int v) {
+		return net.hasEdge(u, v) || net.hasEdge(v, u)
+				|| (u == source && sourceSlope[v] > 0) || (v == source && sourceSlope[u] > 0)
+				|| (v == sink && sinkSlope[u] > 0) || (u == sink && sinkSlope[v] > 0);
+	}
+
+	private void registerParametricArc(int u, int v, int arc) {
+		if (u == source && v != sink)
+			sourceArc[v] = arc;
+		else if (v == sink && u != source)
+			sinkArc[u] = arc;
+	}
+
+	/**
+	 * Computes capacity of edge (source, v) at lambda
+	 */
+	private long sourceCapacity(int v, long lambda) {
+		return Math.max(0, sourceBase[v] + sourceSlope[v] * lambda);
+	}
+
+	/**
+	 * Computes capacity of edge (v, sink) at lambda
+	 */
+	private long sinkCapacity(int v, long lambda) {
+		return Math.max(0, sinkBase[v] - sinkSlope[v] * lambda);
+	}
+
+	/**
+	 * Computes maximum flow values and minimum cuts for increasing values
+	 * of lambda by continuing a single push-relabel computation
+	 * @param lambdas values of lambda in increasing order
+	 * @return flow values and nested cuts
+	 */
+	public Result solve(long[] lambdas) {
+		for (int i = 1; i < lambdas.length; i++)
+			if (lambdas[i] < lambdas[i - 1])
+				throw new ArithmeticException("Values of lambda must be increasing");
+		long[] flowValues = new long[lambdas.length];
+		int[] entryIndex = new int[numberOfNodes];
+		Arrays.fill(entryIndex, -1);
+		if (lambdas.length == 0)
+			return new Result(lambdas, flowValues, entryIndex);
+
+		State state = new State(lambdas[0]);
+		for (int i = 0; i < lambdas.length; i++) {
+			state.advance(lambdas[i]);
+			flowValues[i] = state.getFlowValue();
+			BitSet sourceSide = state.computeSourceSide();
+			for (int v = sourceSide.nextSetBit(0); v >= 0; v = sourceSide.nextSetBit(v + 1))
+				if (entryIndex[v] == -1)
+					entryIndex[v] = i;
+		}
+		return new Result(lambdas.clone(), flowValues, entryIndex);
+	}
+
+	/**
+	 * Computes all breakpoints in [lambdaMin, lambdaMax], i.e. values of lambda
+	 * where the source side of the maximal minimum cut differs from the one
+	 * of lambda - 1. Intervals with different cuts at their ends are bisected;
+	 * every computation continues from the state of the interval's lower end.
+	 * @param lambdaMin smallest value of lambda
+	 * @param lambdaMax largest value of lambda
+	 * @return breakpoints in increasing order
+	 */
+	public long[] computeBreakpoints(long lambdaMin, long lambdaMax) {
+		if (lambdaMax < lambdaMin)
+			throw new ArithmeticException("Empty range of lambda");
+		List<Long> breakpoints = new ArrayList<>();
+		State low = new State(lambdaMin);
+		low.advance(lambdaMin);
+		State high = low.copy();
+		high.advance(lambdaMax);
+		findBreakpoints(low, low.computeSourceSide(), high.computeSourceSide(), lambdaMax, breakpoints);
+		long[] result = new long[breakpoints.size()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = breakpoints.get(i);
+		return result;
+	}
+
+	private void findBreakpoints(State low, BitSet lowCut, BitSet highCut, long highLambda,
+			List<Long> breakpoints) {
+		if (lowCut.equals(highCut)) //cuts are nested, so cut is constant in between
+			return;
+		if (highLambda == low.lambda + 1) {
+			breakpoints.add(highLambda);
+			return;
+		}
+		long middleLambda = low.lambda + (highLambda - low.lambda) / 2;
+		State middle = low.copy();
+		middle.advance(middleLambda);
+		BitSet middleCut = middle.computeSourceSide();
+		findBreakpoints(low, lowCut, middleCut, middleLambda, breakpoints);
+		findBreakpoints(middle, middleCut, highCut, highLambda, breakpoints);
+	}
+
+	/**
+	 * Creates the net for a value of lambda, e.g. to check results with
+	 * another maxflow algorithm
+	 * @param lambda value of parameter
+	 * @return net with capacities at lambda
+	 */
+	public Net createNet(long lambda) {
+		GraphWithFlow net = new GraphWithFlow(numberOfNodes, source, sink);
+		for (int u = 0; u < numberOfNodes; u++)
+			for (int a = arcStart[u]; a < arcStart[u + 1]; a++) {
+				int arc = adjacency[a];
+				net.setEdgeCapacity(u, arcHead[arc], Math.toIntExact(capacity(arc, lambda)));
+			}
+		return net;
+	}
+
+	private long capacity(int arc, long lambda) {
+		int tail = arcHead[arc ^ 1], head = arcHead[arc];
+		if (sourceArc[head] == arc)
+			return sourceCapacity(head, lambda);
+		if (sinkArc[tail] == arc)
+			return sinkCapacity(tail, lambda);
+		return constantCapacity[arc];
+	}
+
+	/**
+	 * Preflow and labels of the push-relabel computation at one value of lambda
+	 */
+	private final class State {
+		private long lambda;
+		private final long[] residual, excess;
+		private final int[] label, currentArc;
+
+		/**
+		 * Creates zero flow at lambda
+		 */
+		State(long lambda) {
+			this.lambda = lambda;
+			residual = new long[arcHead.length];
+			for (int arc = 0; arc < arcHead.length; arc++)
+				residual[arc] = capacity(arc, lambda);
+			excess = new long[numberOfNodes];
+			label = new int[numberOfNodes];
+			label[source] = numberOfNodes;
+			currentArc = Arrays.copyOf(arcStart, numberOfNodes);
+			//saturate all source arcs
+			for (int a = arcStart[source]; a < arcStart[source + 1]; a++)
+				pushAll(adjacency[a], source);
+		}
+
+		private State(State other) {
+			lambda = other.lambda;
+			residual = other.residual.clone();
+			excess = other.excess.clone();
+			label = other.label.clone();
+			currentArc = other.currentArc.clone();
+		}
+
+		State copy() {
+			return new State(this);
+		}
+
+		/**
+		 * Updates capacities to a larger lambda and restores a maximum preflow
+		 */
+		void advance(long newLambda) {
+			for (int v = 0; v < numberOfNodes; v++) {
+				if (sourceArc[v] != -1) {
+					int arc = sourceArc[v];
+					residual[arc] += sourceCapacity(v, newLambda) - sourceCapacity(v, lambda);
+					if (label[v] < numberOfNodes) //source arcs of unfinished nodes stay saturated
+						pushAll(arc, source);
+				}
+				if (sinkArc[v] != -1) {
+					int arc = sinkArc[v];
+					long newCapacity = sinkCapacity(v, newLambda);
+					long flow = sinkCapacity(v, lambda) - residual[arc];
+					if (flow > newCapacity) { //return surplus flow to v as excess
+						residual[arc ^ 1] -= flow - newCapacity;
+						excess[sink] -= flow - newCapacity;
+						excess[v] += flow - newCapacity;
+						residual[arc] = 0;
+					} else
+						residual[arc] = newCapacity - flow;
+				}
+			}
+			lambda = newLambda;
+			computeExactLabels();
+			discharge();
+		}
+
+		private void pushAll(int arc, int tail) {
+			long amount = residual[arc];
+			if (amount == 0)
+				return;
+			residual[arc] = 0;
+			residual[arc ^ 1] += amount;
+			excess[tail] -= amount;
+			excess[arcHead[arc]] += amount;
+		}
+
+		/**
+		 * Sets labels to distances to sink in residual net, or to
+		 * numberOfNodes if sink is unreachable; distances never are
+		 * smaller than valid labels, so labels do not decrease
+		 */
+		private void computeExactLabels() {
+			int[] distance = new int[numberOfNodes];
+			Arrays.fill(distance, numberOfNodes);
+			int[] queue = new int[numberOfNodes];
+			int head = 0, tail = 0;
+			distance[sink] = 0;
+			queue[tail++] = sink;
+			while (head < tail) {
+				int v = queue[head++];
+				for (int a = arcStart[v]; a < arcStart[v + 1]; a++) {
+					int arc = adjacency[a];
+					int u = arcHead[arc];
+					if (u != source && distance[u] == numberOfNodes && residual[arc ^ 1] > 0) {
+						distance[u] = distance[v] + 1;
+						queue[tail++] = u;
+					}
+				}
+			}
+			for (int v = 0; v < numberOfNodes; v++)
+				if (v != source && label[v] < numberOfNodes) {
+					label[v] = Math.max(label[v], distance[v]);
+					currentArc[v] = arcStart[v];
+				}
+		}
+
+		/**
+		 * Discharges nodes with excess and label below numberOfNodes in FIFO order
+		 */
+		private void discharge() {
+			ArrayDeque<Integer> active = new ArrayDeque<>();
+			boolean[] queued = new boolean[numberOfNodes];
+			for (int v = 0; v < numberOfNodes; v++)
+				if (isActive(v)) {
+					active.add(v);
+					queued[v] = true;
+				}
+			while (!active.isEmpty()) {
+				int u = active.poll();
+				queued[u] = false;
+				while (excess[u] > 0 && label[u] < numberOfNodes) {
+					if (currentArc[u] == arcStart[u + 1]) {
+						relabel(u);
+						continue;
+					}
+					int arc = adjacency[currentArc[u]];
+					int v = arcHead[arc];
+					if (residual[arc] > 0 && label[u] == label[v] + 1) {
+						long amount = Math.min(excess[u], residual[arc]);
+						residual[arc] -= amount;
+						residual[arc ^ 1] += amount;
+						excess[u] -= amount;
+						excess[v] += amount;
+						if (!queued[v] && isActive(v)) {
+							active.add(v);
+							queued[v] = true;
+						}
+					} else
+						currentArc[u]++;
+				}
+			}
+		}
+
+		private boolean isActive(int v) {
+			return v != source && v != sink && excess[v] > 0 && label[v] < numberOfNodes;
+		}
+
+		private void relabel(int u) {
+			int minLabel = numberOfNodes;
+			for (int a = arcStart[u]; a < arcStart[u + 1]; a++) {
+				int arc = adjacency[a];
+				if (residual[arc] > 0)
+					minLabel = Math.min(minLabel, label[arcHead[arc]] + 1);
+			}
+			label[u] = Math.min(minLabel, numberOfNodes);
+			currentArc[u] = arcStart[u];
+		}
+
+		long getFlowValue() {
+			return excess[sink];
+		}
+
+		/**
+		 * Computes source side of maximal minimum cut: nodes not reaching sink
+		 */
+		BitSet computeSourceSide() {
+			BitSet reachingSink = new BitSet(numberOfNodes);
+			int[] queue = new int[numberOfNodes];
+			int head = 0, tail = 0;
+			reachingSink.set(sink);
+			queue[tail++] = sink;
+			while (head < tail) {
+				int v = queue[head++];
+				for (int a = arcStart[v]; a < arcStart[v + 1]; a++) {
+					int arc = adjacency[a];
+					int u = arcHead[arc];
+					if (!reachingSink.get(u) && residual[arc ^ 1] > 0) {
+						reachingSink.set(u);
+						queue[tail++] = u;
+					}
+				}
+			}
+			BitSet sourceSide = new BitSet(numberOfNodes);
+			sourceSide.set(0, numberOfNodes);
+			sourceSide.andNot(reachingSink);
+			return sourceSide;
+		}
+	}
+
+	/**
+	 * Maximum flow values and nested minimum cuts for a sequence of lambda values
+	 */
+	public static final class Result {
+		private final long[] lambdas, flowValues;
+		private final int[] entryIndex; //first lambda index with node on source side, -1 if never
+
+		private Result(long[] lambdas, long[] flowValues, int[] entryIndex) {
+			this.lambdas = lambdas;
+			this.flowValues = flowValues;
+			this.entryIndex = entryIndex;
+		}
+
+		public long getLambda(int index) {
+			return lambdas[index];
+		}
+
+		public long getFlowValue(int index) {
+			return flowValues[index];
+		}
+
+		/**
+		 * Gets source side of the maximal minimum cut at a lambda
+		 * @param index index of lambda value
+		 * @return source side of cut
+		 */
+		public BitSet getSourceSide(int index) {
+			BitSet sourceSide = new BitSet(entryIndex.length);
+			for (int v = 0; v < entryIndex.length; v++)
+				if (entryIndex[v] != -1 && entryIndex[v] <= index)
+					sourceSide.set(v);
+			return sourceSide;
+		}
+
+		/**
+		 * Gets index of the first lambda value whose cut contains node;
+		 * this array describes the whole nested cut sequence
+		 * @param node index of node
+		 * @return index of lambda value, or -1 if node is always on sink side
+		 */
+		public int getEntryIndex(int node) {
+			return entryIndex[node];
+		}
+	}
+}
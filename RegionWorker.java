@@ -0,0 +1,495 @@
+package maxflow;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * class RegionWorker
+ * worker process of {@link DistributedMaxFlow}. A worker owns the nodes of
+ * one region and the residual capacities of all arcs leaving them. In every
+ * round it receives pushes and label changes of neighbouring regions,
+ * discharges its active nodes by push-relabel and answers with pushes into
+ * other regions and label changes of its boundary nodes, each addressed to
+ * every region owning a neighbour of the node.
+ * Labels of nodes of other regions (ghost nodes) are only updated between rounds.
+ * On request it takes part in a global relabel: distances to the sink in
+ * the residual net are computed region by region, exchanging distances of
+ * boundary nodes, and then replace all labels.
+ * contains main method
+ *
+ * Usage: RegionWorker port workerId
+ */
+public final class RegionWorker {
+
+	//commands sent by coordinator
+	static final int INIT = 1, ROUND = 2, FINISH = 3, GLOBAL_RELABEL = 4, APPLY_LABELS = 5;
+
+	private final int numberOfNodes, source, sink, maxLabel;
+	private final boolean[] owned;
+	private final int[] ownedNodes;
+	//arcs of owned node u are arcs[arcStart[u]..arcStart[u+1]-1] (by local index)
+	private final int[] arcStart, arcHead, arcReverse; //arcReverse is -1 for arcs into ghost nodes
+	private final int[] residual, capacity;
+	private final int[] localIndex; //local index of owned nodes, -1 for ghosts
+	//regions owning neighbours of boundary node i are ghostRegions[ghostRegionStart[i]..ghostRegionStart[i+1]-1]
+	private final int[] ghostRegionStart, ghostRegions;
+	private final long[] excess;
+	private final int[] label, currentArc;
+	private final boolean[] boundary, labelChanged;
+	//arcs from owned nodes into ghost nodes, with local index of their tail
+	private final int[] boundaryArcTail, boundaryArc;
+	//distances to sink of owned and ghost nodes during global relabel
+	private final int[] distance;
+	private final boolean[] distanceChanged;
+	//local indices of nodes flagged in labelChanged and distanceChanged
+	private final IntArray changedLabels = new IntArray(), changedDistances = new IntArray();
+	private boolean relabeling;
+	private final ArrayDeque<Integer> active = new ArrayDeque<>();
+	private final boolean[] queued;
+	private boolean sourceSaturated;
+
+	//pushes into ghost nodes of the current round: triplets <from to amount>
+	private int[] outgoingPushes = new int[48];
+	private int outgoingCount;
+
+	/**
+	 * Connects to coordinator and serves its commands until FINISH.
+	 *
+	 * @param args port of coordinator and id of this worker
+	 * @throws IOException if connection to coordinator fails
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2)
+			throw new IllegalArgumentException("Usage: RegionWorker port workerId");
+		int port = Integer.parseInt(args[0]);
+		int workerId = Integer.parseInt(args[1]);
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+				DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+			out.writeInt(workerId);
+			out.flush();
+			if (in.readInt() != INIT)
+				throw new IOException("Expected INIT command");
+			RegionWorker worker = new RegionWorker(in, workerId);
+			while (true) {
+				int command = in.readInt();
+				if (command == ROUND)
+					worker.runRound(in, out);
+				else if (command == GLOBAL_RELABEL)
+					worker.computeDistances(in, out);
+				else if (command == APPLY_LABELS)
+					worker.applyLabels(out);
+				else if (command == FINISH) {
+					worker.writeFlow(out);
+					out.flush();
+					return;
+				} else
+					throw new IOException("Unknown command " + command);
+				out.flush();
+			}
+		}
+	}
+
+	/**
+	 * Reads region: number of nodes, source, sink, region of every node and
+	 * triplets <u w capacity(u,w)> for owned u, terminated by -1. Every arc
+	 * (u,w) must come with an arc (w,u), of capacity 0 if there is no such
+	 * edge, sent to the owner of w; arcs given more than once are merged by
+	 * summing their capacities.
+	 * @param in stream from coordinator
+	 * @param workerId region owned by this worker
+	 * @throws IOException if region could not be read
+	 */
+	private RegionWorker(DataInputStream in, int workerId) throws IOException {
+		numberOfNodes = in.readInt();
+		source = in.readInt();
+		sink = in.readInt();
+		maxLabel = 2 * numberOfNodes;
+		int[] region = new int[numberOfNodes];
+		owned = new boolean[numberOfNodes];
+		localIndex = new int[numberOfNodes];
+		int ownedCount = 0, numberOfRegions = 0;
+		for (int v = 0; v < numberOfNodes; v++) {
+			region[v] = in.readInt();
+			numberOfRegions = Math.max(numberOfRegions, region[v] + 1);
+			owned[v] = region[v] == workerId;
+			localIndex[v] = owned[v] ? ownedCount++ : -1;
+		}
+		ownedNodes = new int[ownedCount];
+		for (int v = 0; v < numberOfNodes; v++)
+			if (owned[v])
+				ownedNodes[localIndex[v]] = v;
+
+		//arcs as they come; an entry is head << 32 | capacity
+		int[] tails = new int[16];
+		long[] entries = new long[16];
+		int numberOfEntries = 0;
+		for (int tail = in.readInt(); tail != -1; tail = in.readInt()) {
+			if (numberOfEntries == tails.length) {
+				tails = Arrays.copyOf(tails, 2 * numberOfEntries);
+				entries = Arrays.copyOf(entries, 2 * numberOfEntries);
+			}
+			tails[numberOfEntries] = localIndex[tail];
+			entries[numberOfEntries++] = (long) in.readInt() << 32 | in.readInt();
+		}
+		//bucket by tail, then sort and merge every bucket
+		int[] bucketStart = new int[ownedNodes.length + 1];
+		for (int e = 0; e < numberOfEntries; e++)
+			bucketStart[tails[e] + 1]++;
+		for (int i = 0; i < ownedNodes.length; i++)
+			bucketStart[i + 1] += bucketStart[i];
+		long[] buckets = new long[numberOfEntries];
+		int[] fill = Arrays.copyOf(bucketStart, ownedNodes.length);
+		for (int e = 0; e < numberOfEntries; e++)
+			buckets[fill[tails[e]]++] = entries[e];
+		tails = null;
+		entries = null;
+		arcStart = new int[ownedNodes.length + 1];
+		for (int i = 0; i < ownedNodes.length; i++) {
+			int begin = bucketStart[i], last = begin - 1;
+			Arrays.sort(buckets, begin, bucketStart[i + 1]);
+			for (int e = begin; e < bucketStart[i + 1]; e++) {
+				if (last >= begin && buckets[e] >>> 32 == buckets[last] >>> 32) {
+					int sum = Math.addExact((int) buckets[last], (int) buckets[e]);
+					buckets[last] = (buckets[last] & 0xFFFFFFFF00000000L) | sum;
+				} else
+					buckets[++last] = buckets[e];
+			}
+			arcStart[i + 1] = arcStart[i] + last + 1 - begin;
+		}
+		int numberOfArcs = arcStart[ownedNodes.length];
+		arcHead = new int[numberOfArcs];
+		arcReverse = new int[numberOfArcs];
+		residual = new int[numberOfArcs];
+		capacity = new int[numberOfArcs];
+		for (int i = 0; i < ownedNodes.length; i++)
+			for (int arc = arcStart[i]; arc < arcStart[i + 1]; arc++) {
+				long entry = buckets[bucketStart[i] + arc - arcStart[i]];
+				arcHead[arc] = (int) (entry >>> 32);
+				capacity[arc] = (int) entry;
+				residual[arc] = capacity[arc];
+			}
+
+		boundary = new boolean[ownedNodes.length];
+		int boundaryArcs = 0;
+		for (int i = 0; i < ownedNodes.length; i++)
+			for (int arc = arcStart[i]; arc < arcStart[i + 1]; arc++) {
+				int head = arcHead[arc];
+				if (owned[head]) {
+					arcReverse[arc] = findArc(localIndex[head], ownedNodes[i]);
+					if (arcReverse[arc] == -1)
+						throw new IOException("Missing reverse arc of " + ownedNodes[i] + " " + head);
+				} else {
+					arcReverse[arc] = -1;
+					boundary[i] = true;
+					boundaryArcs++;
+				}
+			}
+		boundaryArcTail = new int[boundaryArcs];
+		boundaryArc = new int[boundaryArcs];
+		for (int i = 0, b = 0; i < ownedNodes.length; i++)
+			for (int arc = arcStart[i]; arc < arcStart[i + 1]; arc++)
+				if (arcReverse[arc] == -1) {
+					boundaryArcTail[b] = i;
+					boundaryArc[b++] = arc;
+				}
+		//distinct regions of ghost neighbours of every node
+		ghostRegionStart = new int[ownedNodes.length + 1];
+		int[] regionStamp = new int[numberOfRegions];
+		Arrays.fill(regionStamp, -1);
+		IntArray regions = new IntArray();
+		for (int i = 0; i < ownedNodes.length; i++) {
+			for (int arc = arcStart[i]; arc < arcStart[i + 1]; arc++)
+				if (arcReverse[arc] == -1 && regionStamp[region[arcHead[arc]]] != i) {
+					regionStamp[region[arcHead[arc]]] = i;
+					regions.add(region[arcHead[arc]]);
+				}
+			ghostRegionStart[i + 1] = regions.size;
+		}
+		ghostRegions = Arrays.copyOf(regions.values, regions.size);
+		distance = new int[numberOfNodes];
+		distanceChanged = new boolean[ownedNodes.length];
+
+		excess = new long[ownedNodes.length];
+		label = new int[numberOfNodes]; //labels of owned and ghost nodes
+		label[source] = numberOfNodes;
+		currentArc = Arrays.copyOf(arcStart, ownedNodes.length);
+		labelChanged = new boolean[ownedNodes.length];
+		queued = new boolean[ownedNodes.length];
+	}
+
+	/**
+	 * Finds arc between owned node and another node by binary search,
+	 * arcs of a node are sorted by head
+	 * @param i local index of owned node
+	 * @param head head of arc
+	 * @return arc, -1 if there is none
+	 */
+	private int findArc(int i, int head) {
+		int low = arcStart[i], high = arcStart[i + 1] - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (arcHead[middle] < head)
+				low = middle + 1;
+			else if (arcHead[middle] > head)
+				high = middle - 1;
+			else
+				return middle;
+		}
+		return -1;
+	}
+
+	/**
+	 * Flags boundary node and remembers it, so that rounds do not scan
+	 * the whole region for changes
+	 */
+	private static void markChanged(boolean[] changed, IntArray changedNodes, int i) {
+		if (!changed[i]) {
+			changed[i] = true;
+			changedNodes.add(i);
+		}
+	}
+
+	/**
+	 * Writes values of flagged boundary nodes as triplets
+	 * <region node value>, one for every region owning a neighbour of the
+	 * node, and clears the flags
+	 */
+	private void writeBoundaryValues(DataOutputStream out, boolean[] changed, IntArray changedNodes,
+			int[] values) throws IOException {
+		int count = 0;
+		for (int c = 0; c < changedNodes.size; c++) {
+			int i = changedNodes.values[c];
+			count += ghostRegionStart[i + 1] - ghostRegionStart[i];
+		}
+		out.writeInt(count);
+		for (int c = 0; c < changedNodes.size; c++) {
+			int i = changedNodes.values[c];
+			for (int r = ghostRegionStart[i]; r < ghostRegionStart[i + 1]; r++) {
+				out.writeInt(ghostRegions[r]);
+				out.writeInt(ownedNodes[i]);
+				out.writeInt(values[ownedNodes[i]]);
+			}
+			changed[i] = false;
+		}
+		changedNodes.size = 0;
+	}
+
+	/**
+	 * Reads pushes and ghost labels, discharges region and writes reply:
+	 * pushes into ghost nodes and changed boundary labels. Region has no
+	 * active nodes after discharge, so new work only comes with pushes.
+	 */
+	private void runRound(DataInputStream in, DataOutputStream out) throws IOException {
+		int pushes = in.readInt();
+		for (int p = 0; p < pushes; p++) {
+			int from = in.readInt(), to = in.readInt(), amount = in.readInt();
+			residual[findArc(localIndex[to], from)] += amount;
+			addExcess(localIndex[to], amount);
+		}
+		int labels = in.readInt();
+		for (int l = 0; l < labels; l++) {
+			int node = in.readInt();
+			label[node] = in.readInt();
+		}
+
+		outgoingCount = 0;
+		if (!sourceSaturated && owned[source]) {
+			//after a global relabel only nodes that reach the sink get flow
+			int s = localIndex[source];
+			for (int arc = arcStart[s]; arc < arcStart[s + 1]; arc++)
+				if (residual[arc] > 0 && label[arcHead[arc]] < numberOfNodes)
+					push(s, arc, residual[arc]);
+		}
+		sourceSaturated = true;
+		discharge();
+
+		out.writeInt(outgoingCount / 3);
+		for (int i = 0; i < outgoingCount; i++)
+			out.writeInt(outgoingPushes[i]);
+		writeBoundaryValues(out, labelChanged, changedLabels, label);
+	}
+
+	/**
+	 * Reads distances of ghost nodes, lowers distances of owned nodes
+	 * along residual arcs and writes changed distances of boundary nodes.
+	 * The first call after a round starts from distance 0 at the sink and
+	 * maxLabel elsewhere; the coordinator repeats the call until no
+	 * distance changes.
+	 */
+	private void computeDistances(DataInputStream in, DataOutputStream out) throws IOException {
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+		if (!relabeling) {
+			relabeling = true;
+			Arrays.fill(distance, maxLabel);
+			if (owned[sink]) {
+				distance[sink] = 0;
+				if (boundary[localIndex[sink]])
+					markChanged(distanceChanged, changedDistances, localIndex[sink]);
+				queue.add(localIndex[sink]);
+			}
+		}
+		int updates = in.readInt();
+		for (int d = 0; d < updates; d++) {
+			int node = in.readInt();
+			distance[node] = in.readInt();
+		}
+		for (int b = 0; b < boundaryArc.length; b++) {
+			int i = boundaryArcTail[b], arc = boundaryArc[b];
+			lowerDistance(i, arc, queue);
+		}
+		//label correcting search backwards along residual arcs inside region
+		while (!queue.isEmpty()) {
+			int i = queue.poll();
+			for (int arc = arcStart[i]; arc < arcStart[i + 1]; arc++)
+				if (arcReverse[arc] >= 0)
+					lowerDistance(localIndex[arcHead[arc]], arcReverse[arc], queue);
+		}
+
+		writeBoundaryValues(out, distanceChanged, changedDistances, distance);
+	}
+
+	/**
+	 * Lowers distance of owned node i to distance of the head of its arc
+	 * plus one if the arc has residual capacity
+	 */
+	private void lowerDistance(int i, int arc, ArrayDeque<Integer> queue) {
+		int u = ownedNodes[i];
+		int viaArc = distance[arcHead[arc]] + 1;
+		if (u == source || residual[arc] == 0 || viaArc >= distance[u])
+			return;
+		distance[u] = viaArc;
+		if (boundary[i])
+			markChanged(distanceChanged, changedDistances, i);
+		queue.add(i);
+	}
+
+	/**
+	 * Replaces labels by computed distances and activates nodes with
+	 * excess that reach the sink. Writes amount of remaining work: number
+	 * of active nodes plus one if the source has residual arcs to them.
+	 */
+	private void applyLabels(DataOutputStream out) throws IOException {
+		relabeling = false;
+		System.arraycopy(distance, 0, label, 0, numberOfNodes);
+		label[source] = numberOfNodes;
+		int work = 0;
+		for (int i = 0; i < ownedNodes.length; i++) {
+			currentArc[i] = arcStart[i];
+			labelChanged[i] = false;
+			changedLabels.size = 0;
+			if (excess[i] > 0 && !queued[i]) {
+				addExcess(i, 0);
+				if (queued[i])
+					work++;
+			}
+		}
+		if (owned[source]) {
+			int s = localIndex[source];
+			for (int arc = arcStart[s]; arc < arcStart[s + 1]; arc++)
+				if (residual[arc] > 0 && label[arcHead[arc]] < numberOfNodes) {
+					sourceSaturated = false;
+					work++;
+					break;
+				}
+		}
+		out.writeInt(work);
+	}
+
+	/**
+	 * Discharges active nodes of region in FIFO order until none is left
+	 */
+	private void discharge() {
+		while (!active.isEmpty()) {
+			int i = active.poll();
+			queued[i] = false;
+			int u = ownedNodes[i];
+			while (excess[i] > 0 && label[u] < maxLabel) {
+				if (currentArc[i] == arcStart[i + 1]) {
+					relabel(i);
+					continue;
+				}
+				int arc = currentArc[i];
+				if (residual[arc] > 0 && label[u] == label[arcHead[arc]] + 1)
+					push(i, arc, (int) Math.min(excess[i], residual[arc]));
+				else
+					currentArc[i]++;
+			}
+		}
+	}
+
+	private void push(int i, int arc, int amount) {
+		residual[arc] -= amount;
+		excess[i] -= amount;
+		int head = arcHead[arc];
+		if (arcReverse[arc] >= 0) {
+			residual[arcReverse[arc]] += amount;
+			addExcess(localIndex[head], amount);
+		} else {
+			if (outgoingCount + 3 > outgoingPushes.length)
+				outgoingPushes = Arrays.copyOf(outgoingPushes, 2 * outgoingPushes.length);
+			outgoingPushes[outgoingCount++] = ownedNodes[i];
+			outgoingPushes[outgoingCount++] = head;
+			outgoingPushes[outgoingCount++] = amount;
+		}
+	}
+
+	private void addExcess(int i, int amount) {
+		excess[i] += amount;
+		int node = ownedNodes[i];
+		if (node != source && node != sink && !queued[i] && label[node] < maxLabel) {
+			active.add(i);
+			queued[i] = true;
+		}
+	}
+
+	private void relabel(int i) {
+		int minLabel = maxLabel;
+		for (int arc = arcStart[i]; arc < arcStart[i + 1]; arc++)
+			if (residual[arc] > 0)
+				minLabel = Math.min(minLabel, label[arcHead[arc]] + 1);
+		label[ownedNodes[i]] = Math.max(label[ownedNodes[i]] + 1, minLabel);
+		currentArc[i] = arcStart[i];
+		if (boundary[i])
+			markChanged(labelChanged, changedLabels, i);
+	}
+
+	/**
+	 * Growable list of ints
+	 */
+	private static final class IntArray {
+		private int[] values = new int[16];
+		private int size;
+
+		void add(int value) {
+			if (size == values.length)
+				values = Arrays.copyOf(values, 2 * size);
+			values[size++] = value;
+		}
+	}
+
+	/**
+	 * Writes triplets <u w flow> of positive net flow from owned nodes u
+	 */
+	private void writeFlow(DataOutputStream out) throws IOException {
+		int count = 0;
+		for (int arc = 0; arc < arcHead.length; arc++)
+			if (capacity[arc] - residual[arc] > 0)
+				count++;
+		out.writeInt(count);
+		for (int i = 0; i < ownedNodes.length; i++)
+			for (int arc = arcStart[i]; arc < arcStart[i + 1]; arc++)
+				if (capacity[arc] - residual[arc] > 0) {
+					out.writeInt(ownedNodes[i]);
+					out.writeInt(arcHead[arc]);
+					out.writeInt(capacity[arc] - residual[arc]);
+				}
+	}
+}
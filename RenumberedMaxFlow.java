@@ -0,0 +1,244 @@
+package maxflow;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * RenumberedMaxFlow
+ * class renumbering the nodes of a {@link CompactGraph} for memory locality
+ * before {@link CompactDinicMaxFlow} solves it. Node ids from input files
+ * are arbitrary, so neighbours are often far apart in the arc and level
+ * arrays; after renumbering, nodes explored together by breadth first
+ * searches have close ids. Matrix engines scan whole rows whatever the
+ * numbering, so they do not gain from it and are not supported.
+ */
+public final class RenumberedMaxFlow {
+
+	/**
+	 * Order in which nodes are numbered
+	 */
+	public enum Ordering {
+		/** breadth first search order from source, ignoring edge directions */
+		BFS,
+		/** reverse Cuthill-McKee order, which minimizes the bandwidth of adjacency */
+		REVERSE_CUTHILL_MCKEE,
+		/** decreasing number of neighbours */
+		DEGREE;
+
+		/**
+		 * Gets ordering by its name or abbreviation, ignoring case
+		 * @param name bfs, rcm, reverse_cuthill_mckee or degree
+		 * @return ordering
+		 * @throws IllegalArgumentException if name is unknown
+		 */
+		public static Ordering fromName(String name) {
+			if (name.equalsIgnoreCase("rcm"))
+				return REVERSE_CUTHILL_MCKEE;
+			return valueOf(name.toUpperCase());
+		}
+	}
+
+	private final CompactDinicMaxFlow engine = new CompactDinicMaxFlow();
+	private final Ordering ordering;
+	private CompactGraph lastRenumbered;
+	private long lastRenumberingNanos;
+
+	/**
+	 * Constructor of renumbering wrapper
+	 * @param ordering order of new node ids
+	 */
+	public RenumberedMaxFlow(Ordering ordering) {
+		if (ordering == null)
+			throw new NullPointerException("Ordering was not defined");
+		this.ordering = ordering;
+	}
+
+	/**
+	 * Renumbers graph and computes its maximum flow
+	 * @param graph graph to solve
+	 * @return value of maximum flow
+	 */
+	public long computeMaxFlow(CompactGraph graph) {
+		if (graph == null)
+			throw new NullPointerException("Graph was not defined");
+		long startTime = System.nanoTime();
+		lastRenumbered = renumber(graph, computeOrder(graph, ordering));
+		lastRenumberingNanos = System.nanoTime() - startTime;
+		return engine.computeMaxFlow(lastRenumbered);
+	}
+
+	/**
+	 * Gets engine of the last computation, whose arc flows and phases
+	 * refer to {@link #getLastRenumbered()}
+	 * @return engine
+	 */
+	public CompactDinicMaxFlow getEngine() {
+		return engine;
+	}
+
+	/**
+	 * Gets renumbered graph solved by the last computation
+	 * @return renumbered graph
+	 */
+	public CompactGraph getLastRenumbered() {
+		return lastRenumbered;
+	}
+
+	/**
+	 * Gets time spent on ordering and copying by the last computation,
+	 * i.e. the overhead that renumbering must win back
+	 * @return time in nanoseconds
+	 */
+	public long getLastRenumberingNanos() {
+		return lastRenumberingNanos;
+	}
+
+	/**
+	 * Computes new ids of all nodes
+	 * @param graph graph to renumber
+	 * @param ordering order of new ids
+	 * @return permutation: new id of node v is newIndex[v]
+	 */
+	public static int[] computeOrder(CompactGraph graph, Ordering ordering) {
+		int numberOfNodes = graph.getNumberOfNodes();
+		//arcs are paired, so arcs of a node are exactly its neighbours:
+		//neighbours of u are neighbours[start[u]..start[u+1]-1]
+		int[] start = new int[numberOfNodes + 1];
+		int[] neighbours = new int[graph.getNumberOfArcs()];
+		for (int u = 0; u < numberOfNodes; u++) {
+			start[u + 1] = graph.getEndArc(u);
+			for (int arc = graph.getFirstArc(u); arc < graph.getEndArc(u); arc++)
+				neighbours[arc] = graph.getArcHead(arc);
+		}
+
+		int[] order; //order[i] is the node getting new id i
+		switch (ordering) {
+			case BFS:
+				order = breadthFirstOrder(start, neighbours, graph.getSource(), false);
+				break;
+			case REVERSE_CUTHILL_MCKEE:
+				order = breadthFirstOrder(start, neighbours, -1, true);
+				for (int i = 0, j = numberOfNodes - 1; i < j; i++, j--) {
+					int swap = order[i];
+					order[i] = order[j];
+					order[j] = swap;
+				}
+				break;
+			default:
+				//sort by decreasing degree, ties by id
+				long[] keys = new long[numberOfNodes];
+				for (int v = 0; v < numberOfNodes; v++)
+					keys[v] = (long) (Integer.MAX_VALUE - (start[v + 1] - start[v])) << 32 | v;
+				Arrays.sort(keys);
+				order = new int[numberOfNodes];
+				for (int i = 0; i < numberOfNodes; i++)
+					order[i] = (int) keys[i];
+		}
+		int[] newIndex = new int[numberOfNodes];
+		for (int i = 0; i < numberOfNodes; i++)
+			newIndex[order[i]] = i;
+		return newIndex;
+	}
+
+	/**
+	 * Computes breadth first order of all components
+	 * @param first node to start with, or -1 to start every component at a
+	 * node of minimal degree
+	 * @param byDegree {@code true} if neighbours are visited by increasing
+	 * degree (Cuthill-McKee), otherwise by id
+	 */
+	private static int[] breadthFirstOrder(int[] start, int[] neighbours, int first, boolean byDegree) {
+		int numberOfNodes = start.length - 1;
+		int[] order = new int[numberOfNodes];
+		boolean[] visited = new boolean[numberOfNodes];
+		//candidates for component starts, by increasing degree if first is not given
+		int[] roots = new int[numberOfNodes];
+		for (int v = 0; v < numberOfNodes; v++)
+			roots[v] = v;
+		if (first == -1)
+			roots = sortByDegree(roots, 0, numberOfNodes, start);
+		int head = 0, tail = 0;
+		for (int r = -1; r < numberOfNodes; r++) {
+			int root = r == -1 ? first : roots[r];
+			if (root == -1 || visited[root])
+				continue;
+			visited[root] = true;
+			order[tail++] = root;
+			while (head < tail) {
+				int u = order[head++];
+				int begin = tail;
+				for (int i = start[u]; i < start[u + 1]; i++) {
+					int v = neighbours[i];
+					if (!visited[v]) {
+						visited[v] = true;
+						order[tail++] = v;
+					}
+				}
+				if (byDegree) {
+					int[] sorted = sortByDegree(order, begin, tail, start);
+					System.arraycopy(sorted, 0, order, begin, tail - begin);
+				}
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * Sorts nodes[begin..end-1] by increasing degree, ties by id
+	 * @return sorted copy of the range
+	 */
+	private static int[] sortByDegree(int[] nodes, int begin, int end, int[] start) {
+		long[] keys = new long[end - begin];
+		for (int i = begin; i < end; i++) {
+			int v = nodes[i];
+			keys[i - begin] = (long) (start[v + 1] - start[v]) << 32 | v;
+		}
+		Arrays.sort(keys);
+		int[] sorted = new int[keys.length];
+		for (int i = 0; i < keys.length; i++)
+			sorted[i] = (int) keys[i];
+		return sorted;
+	}
+
+	/**
+	 * Creates copy of compact graph with renumbered nodes. Arcs are
+	 * permuted directly, rows are only sorted by their new heads.
+	 * @param graph graph to copy
+	 * @param newIndex new id of every node
+	 * @return renumbered graph
+	 */
+	public static CompactGraph renumber(CompactGraph graph, int[] newIndex) {
+		int numberOfNodes = graph.getNumberOfNodes();
+		int[] order = new int[numberOfNodes]; //order[i] is the node getting new id i
+		for (int v = 0; v < numberOfNodes; v++)
+			order[newIndex[v]] = v;
+		int[] arcStart = new int[numberOfNodes + 1];
+		for (int i = 0; i < numberOfNodes; i++)
+			arcStart[i + 1] = arcStart[i] + graph.getEndArc(order[i]) - graph.getFirstArc(order[i]);
+		int numberOfArcs = arcStart[numberOfNodes];
+		int[] arcHead = new int[numberOfArcs], arcCapacity = new int[numberOfArcs];
+		int[] arcReverse = new int[numberOfArcs];
+		//an entry is head << 32 | capacity, so sorting orders row by head
+		long[] entries = new long[numberOfArcs];
+		IntStream.range(0, numberOfNodes).parallel().forEach(i -> {
+			int u = order[i], first = graph.getFirstArc(u), begin = arcStart[i], end = arcStart[i + 1];
+			for (int k = begin; k < end; k++) {
+				int arc = first + k - begin;
+				entries[k] = (long) newIndex[graph.getArcHead(arc)] << 32 | graph.getArcCapacity(arc);
+			}
+			Arrays.sort(entries, begin, end);
+			for (int k = begin; k < end; k++) {
+				arcHead[k] = (int) (entries[k] >>> 32);
+				arcCapacity[k] = (int) entries[k];
+			}
+		});
+		//rows are sorted by head: visiting tails in increasing order meets
+		//the arcs into node v in the order of v's row
+		int[] nextReverse = Arrays.copyOf(arcStart, numberOfNodes);
+		for (int u = 0; u < numberOfNodes; u++)
+			for (int arc = arcStart[u]; arc < arcStart[u + 1]; arc++)
+				arcReverse[arc] = nextReverse[arcHead[arc]]++;
+		return new CompactGraph(numberOfNodes, newIndex[graph.getSource()], newIndex[graph.getSink()],
+				arcStart, arcHead, arcCapacity, arcReverse);
+	}
+}
@@ -140,23 +140,8 @@ public final class Shell {
 	 * @return Net net that was built
 	 */
 	private static Net readNetFromFile(String fileName) {
-		Net net = null;
-		
 		try {
-			File file = openFile(fileName);
-			Scanner reader = new Scanner(file);
-			int nodesNum = reader.nextInt(); //first line must contain nodes number
-			net = new GraphWithFlow(nodesNum); 
-			while (reader.hasNextInt()) {
-				//reads a triplet <source target capacity> from file
-				int source = reader.nextInt();
-				int target = reader.nextInt();
-				int cap = reader.nextInt();
-				net.setEdgeCapacity(source-maxflowConstants.INDEX_OFFSET, 
-						target-maxflowConstants.INDEX_OFFSET, cap); //add edge to net				
-			}
-			reader.close();	
-			return net;	
+			return loadNet(fileName);
 		
 		} catch (InputMismatchException e) {
 			printError("Input Data must be Integers");
@@ -171,7 +156,84 @@ public final class Shell {
 			
 	}
 	
-	private static File openFile(String fileName) throws FileNotFoundException{
+	/**
+	 * Reads input data (Net) from file and creates net without reporting errors.
+	 * Used by {@link #readNetFromFile(String)} and by {@link BatchShell}.
+	 * @param fileName name of the file with net data
+	 * @return Net net that was built
+	 * @throws FileNotFoundException if file does not exist
+	 * @throws InputMismatchException if data in file are not integers
+	 * @throws NoSuchElementException if data in file are incomplete
+	 * @throws ArithmeticException if data in file describe no valid net
+	 */
+	static Net loadNet(String fileName) throws FileNotFoundException {
+		return loadNet(fileName, false);
+	}
+	
+	/**
+	 * Reads input data (Net) from file and creates net without reporting errors.
+	 * @param fileName name of the file with net data
+	 * @param undirected {@code true} if edges are undirected; an edge given
+	 * in both directions is stored once with the capacity read last
+	 * @return Net net that was built
+	 * @throws FileNotFoundException if file does not exist
+	 * @throws InputMismatchException if data in file are not integers
+	 * @throws NoSuchElementException if data in file are incomplete
+	 * @throws ArithmeticException if data in file describe no valid net
+	 */
+	static Net loadNet(String fileName, boolean undirected) throws FileNotFoundException {
+		File file = openFile(fileName);
+		Scanner reader = new Scanner(file);
+		try {
+			int nodesNum = reader.nextInt(); //first line must contain nodes number
+			Net net = undirected ? new UndirectedGraphWithFlow(nodesNum) : new GraphWithFlow(nodesNum); 
+			while (reader.hasNextInt()) {
+				//reads a triplet <source target capacity> from file
+				int source = reader.nextInt();
+				int target = reader.nextInt();
+				int cap = reader.nextInt();
+				net.setEdgeCapacity(source-maxflowConstants.INDEX_OFFSET, 
+						target-maxflowConstants.INDEX_OFFSET, cap); //add edge to net				
+			}
+			return net;
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Reads input data from file into a {@link CompactGraph} without
+	 * building a matrix, so the number of nodes is not limited.
+	 * Unlike {@link #loadNet(String)} an edge given more than once gets the
+	 * sum of its capacities, and loops and edges of capacity 0 are ignored.
+	 * @param fileName name of the file with net data
+	 * @return graph that was built
+	 * @throws FileNotFoundException if file does not exist
+	 * @throws InputMismatchException if data in file are not integers
+	 * @throws NoSuchElementException if data in file are incomplete
+	 * @throws ArithmeticException if data in file describe no valid net
+	 */
+	static CompactGraph loadCompactGraph(String fileName) throws FileNotFoundException {
+		File file = openFile(fileName);
+		Scanner reader = new Scanner(file);
+		try {
+			int nodesNum = reader.nextInt(); //first line must contain nodes number
+			GraphBuilder builder = new GraphBuilder(nodesNum, 0, nodesNum-1);
+			while (reader.hasNextInt()) {
+				//reads a triplet <source target capacity> from file
+				int source = reader.nextInt();
+				int target = reader.nextInt();
+				int cap = reader.nextInt();
+				builder.addEdge(source-maxflowConstants.INDEX_OFFSET,
+						target-maxflowConstants.INDEX_OFFSET, cap);
+			}
+			return builder.freeze();
+		} finally {
+			reader.close();
+		}
+	}
+	
+	static File openFile(String fileName) throws FileNotFoundException{
 		
 		if (!fileName.endsWith(".txt"))
 			fileName+=".txt";
@@ -0,0 +1,53 @@
+package maxflow;
+
+/**
+ * SolveBudget
+ * class limiting the running time of a maxflow computation by a deadline
+ * and/or explicit cancellation. Algorithms check the budget between
+ * augmentations, so checking must be cheap.
+ * Budget may be cancelled from any thread.
+ */
+public final class SolveBudget {
+	private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+	private final long deadline; //in System.nanoTime() units
+	private volatile boolean cancelled;
+
+	private SolveBudget(long deadline) {
+		this.deadline = deadline;
+	}
+
+	/**
+	 * Creates budget that ends only by cancellation
+	 * @return new budget
+	 */
+	public static SolveBudget unlimited() {
+		return new SolveBudget(NO_DEADLINE);
+	}
+
+	/**
+	 * Creates budget that ends after {@code millis} milliseconds or by cancellation
+	 * @param millis time limit in milliseconds
+	 * @return new budget
+	 */
+	public static SolveBudget withTimeout(long millis) {
+		if (millis < 0)
+			throw new ArithmeticException("Time limit cannot be negative");
+		return new SolveBudget(System.nanoTime() + millis * 1_000_000L);
+	}
+
+	/**
+	 * Cancels computations using this budget
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Checks if the budget is used up
+	 * @return {@code true} if and only if budget was cancelled or deadline has passed
+	 */
+	public boolean isExhausted() {
+		return cancelled || (deadline != NO_DEADLINE && System.nanoTime() - deadline >= 0);
+	}
+}
@@ -0,0 +1,406 @@
+package maxflow;
+
+import java.util.Arrays;
+
+/**
+ * UndirectedGraphWithFlow
+ * defines an undirected graph and a flow in this graph. Every edge {u,v}
+ * is stored once in an upper triangular matrix together with a signed flow,
+ * positive if flow goes from the smaller to the larger node index.
+ * Edge {u,v} with capacity c appears to algorithms as two directed edges
+ * (u,v) and (v,u) of capacity c whose flows cancel each other.
+ * The residual net is a view computing c - f and c + f on every access,
+ * so no residual matrix is built. Memory and matrix traversal are halved
+ * only at rest: while a flow is computed, every phase still builds a full
+ * n x n {@link LevelGraph} from the view, so peak memory and the scans
+ * of a phase are those of a directed net.
+ */
+public class UndirectedGraphWithFlow implements Net {
+	private final int numberOfNodes;
+	private final int source, sink;
+	private final int[] capacities; //capacity of {u,v}, u<v, is at index(u, v)
+	private final int[] flows; //signed flow from u to v, u<v, at index(u, v)
+	private final Flow currentFlow = new UndirectedFlow();
+	private long fingerprint; //order independent hash of all edges, maintained by setEdgeCapacity
+
+	/**
+	 * Constructor of undirected graph without specified source and sink
+	 * @param numberOfNodes number of nodes in graph
+	 * source and sink are chosen to be first and last vertex
+	 */
+	public UndirectedGraphWithFlow(int numberOfNodes) {
+		this(numberOfNodes, 0, numberOfNodes-1);
+	}
+
+	/**
+	 * Constructor of undirected graph with defined source and sink
+	 * @param numberOfNodes number of nodes in graph
+	 * @param source_index index of source vertex
+	 * @param sink_index index of sink vertex
+	 */
+	public UndirectedGraphWithFlow(int numberOfNodes, int source_index, int sink_index) {
+		if (numberOfNodes < maxflowConstants.MIN_NUMBER_OF_NODES)
+			throw new ArithmeticException(
+					String.format("Graph must have at least %d nodes",
+							maxflowConstants.MIN_NUMBER_OF_NODES));
+		if (numberOfNodes > maxflowConstants.MAX_NUMBER_OF_NODES)
+			throw new ArithmeticException(
+					String.format("Graph must have no more than %d nodes",
+							maxflowConstants.MAX_NUMBER_OF_NODES));
+		this.numberOfNodes = numberOfNodes;
+		if (!indexInBounds(source_index))
+			throw new ArrayIndexOutOfBoundsException("Bad source index "+source_index);
+		if (!indexInBounds(sink_index))
+			throw new ArrayIndexOutOfBoundsException("Bad sink index "+sink_index);
+		if (source_index==sink_index)
+			throw new ArithmeticException("Source and sink must be different");
+		source = source_index;
+		sink = sink_index;
+		capacities = new int[numberOfNodes * (numberOfNodes - 1) / 2];
+		flows = new int[capacities.length];
+	}
+
+	private boolean indexInBounds(int index) {
+		return (index>=0 && index < numberOfNodes);
+	}
+
+	private void checkIndices(int source, int target) {
+		if (!indexInBounds(source))
+			throw new ArrayIndexOutOfBoundsException("Invalid vertex index " + source);
+		if (!indexInBounds(target))
+			throw new ArrayIndexOutOfBoundsException("Invalid vertex index " + target);
+	}
+
+	/**
+	 * Computes position of edge {u,v} in the triangular matrix
+	 * @param u smaller node index
+	 * @param v larger node index
+	 */
+	private int index(int u, int v) {
+		return u * (2 * numberOfNodes - u - 1) / 2 + (v - u - 1);
+	}
+
+	@Override
+	public int getEdgeCapacity(int source, int target) {
+		checkIndices(source, target);
+		if (source == target)
+			return 0;
+		return capacities[index(Math.min(source, target), Math.max(source, target))];
+	}
+
+	/**
+	 * Sets capacity of undirected edge {source, target}, which is the
+	 * capacity in both directions
+	 */
+	@Override
+	public void setEdgeCapacity(int source, int target, int capacity) {
+		checkIndices(source, target);
+		if (capacity<0)
+			throw new ArithmeticException("Edge capasity cannot be negative");
+		if (source == target) {
+			if (capacity > 0)
+				throw new ArithmeticException("Undirected graph cannot have loops");
+			return;
+		}
+		int idx = index(Math.min(source, target), Math.max(source, target));
+		//edge counts in both directions, like in a scan of getEdgeCapacity
+		fingerprint += CachedMaxFlow.edgeHash(numberOfNodes, source, target, capacity)
+				+ CachedMaxFlow.edgeHash(numberOfNodes, target, source, capacity)
+				- CachedMaxFlow.edgeHash(numberOfNodes, source, target, capacities[idx])
+				- CachedMaxFlow.edgeHash(numberOfNodes, target, source, capacities[idx]);
+		capacities[idx] = capacity;
+	}
+
+	/**
+	 * Gets fingerprint of graph structure for {@link CachedMaxFlow}, equal to
+	 * the fingerprint of a directed graph with both directions of every edge.
+	 * Source and sink are not part of the fingerprint.
+	 * @return fingerprint of graph
+	 */
+	public long getFingerprint() {
+		return fingerprint;
+	}
+
+	@Override
+	public boolean isValidEdge(int source, int target, int capacity) {
+		try {
+			return getEdgeCapacity(source, target) == capacity;
+		} catch (ArrayIndexOutOfBoundsException e){
+			return false;
+		}
+	}
+
+	@Override
+	public boolean isSinkReachableFromSource() {
+		boolean[] visited = new boolean[numberOfNodes];
+		int[] bfsQueue = new int[numberOfNodes];
+		int head = 0, tail = 0;
+		visited[source] = true;
+		bfsQueue[tail++] = source;
+		while (head < tail) {
+			int u = bfsQueue[head++];
+			for (int v = 0; v < numberOfNodes; v++)
+				if (!visited[v] && v != u && capacities[index(Math.min(u, v), Math.max(u, v))] > 0) {
+					if (v == sink)
+						return true;
+					visited[v] = true;
+					bfsQueue[tail++] = v;
+				}
+		}
+		return false;
+	}
+
+	@Override
+	public int getNumberOfNodes() {
+		return numberOfNodes;
+	}
+
+	@Override
+	public int getSource() {
+		return source;
+	}
+
+	@Override
+	public int getSink() {
+		return sink;
+	}
+
+	@Override
+	public boolean hasEdge(int source, int target) {
+		try {
+			return getEdgeCapacity(source, target) > 0;
+		} catch (ArrayIndexOutOfBoundsException e){
+			return false;
+		}
+	}
+
+	@Override
+	public Flow getFlow() {
+		return currentFlow;
+	}
+
+	/**
+	 * Creates residual net as view of this graph; it reflects later changes
+	 * of capacities and flow and cannot be modified itself
+	 */
+	@Override
+	public ResidualNet createResidualNet() {
+		return new ResidualView();
+	}
+
+	@Override
+	public NiveauGraph createNiveauGraph(ResidualNet residualNet) {
+		return new LevelGraph(residualNet);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder graphToStr = new StringBuilder();
+		for (int i = 0; i < numberOfNodes; i++) {
+			for (int j = 0; j < numberOfNodes; j++) {
+				if (j > 0)
+					graphToStr.append(' ');
+				graphToStr.append(getEdgeCapacity(i, j));
+			}
+			graphToStr.append('\n');
+		}
+		return graphToStr.toString();
+	}
+
+	/**
+	 * Residual net of undirected graph: residual capacity of (u,v) is
+	 * c - f for u<v and c + f for u>v, with f the signed flow of {u,v}
+	 */
+	class ResidualView implements ResidualNet {
+
+		@Override
+		public int getEdgeCapacity(int source, int target) {
+			checkIndices(source, target);
+			if (source == target)
+				return 0;
+			if (source < target) {
+				int e = index(source, target);
+				return capacities[e] - flows[e];
+			}
+			int e = index(target, source);
+			return capacities[e] + flows[e];
+		}
+
+		@Override
+		public void setEdgeCapacity(int source, int target, int capacity) {
+			throw new IllegalStateException("Residual net is a read-only view of the flow");
+		}
+
+		@Override
+		public boolean isValidEdge(int source, int target, int capacity) {
+			try {
+				return getEdgeCapacity(source, target) == capacity;
+			} catch (ArrayIndexOutOfBoundsException e){
+				return false;
+			}
+		}
+
+		@Override
+		public boolean isSinkReachableFromSource() {
+			boolean[] visited = new boolean[numberOfNodes];
+			int[] bfsQueue = new int[numberOfNodes];
+			int head = 0, tail = 0;
+			visited[source] = true;
+			bfsQueue[tail++] = source;
+			while (head < tail) {
+				int u = bfsQueue[head++];
+				//column of u above the diagonal, then row of u right of it
+				for (int v = 0; v < u; v++) {
+					int e = index(v, u);
+					if (!visited[v] && capacities[e] + flows[e] > 0) {
+						if (v == sink)
+							return true;
+						visited[v] = true;
+						bfsQueue[tail++] = v;
+					}
+				}
+				for (int v = u + 1, e = index(u, v); v < numberOfNodes; v++, e++)
+					if (!visited[v] && capacities[e] - flows[e] > 0) {
+						if (v == sink)
+							return true;
+						visited[v] = true;
+						bfsQueue[tail++] = v;
+					}
+			}
+			return false;
+		}
+
+		@Override
+		public int getNumberOfNodes() {
+			return numberOfNodes;
+		}
+
+		@Override
+		public int getSource() {
+			return source;
+		}
+
+		@Override
+		public int getSink() {
+			return sink;
+		}
+
+		@Override
+		public boolean hasEdge(int source, int target) {
+			try {
+				return getEdgeCapacity(source, target) > 0;
+			} catch (ArrayIndexOutOfBoundsException e){
+				return false;
+			}
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder graphToStr = new StringBuilder();
+			for (int i = 0; i < numberOfNodes; i++) {
+				for (int j = 0; j < numberOfNodes; j++) {
+					if (j > 0)
+						graphToStr.append(' ');
+					graphToStr.append(getEdgeCapacity(i, j));
+				}
+				graphToStr.append('\n');
+			}
+			return graphToStr.toString();
+		}
+	}
+
+	/**
+	 * Flow in undirected graph: flow of (u,v) is the signed flow of {u,v}
+	 * in direction from u to v if it is positive, otherwise 0
+	 */
+	class UndirectedFlow implements Flow {
+
+		@Override
+		public int getEdgeFlow(int source, int target) {
+			if (!indexInBounds(source))
+				throw new ArrayIndexOutOfBoundsException("Invalid flow index " + source);
+			if (!indexInBounds(target))
+				throw new ArrayIndexOutOfBoundsException("Invalid flow index " + target);
+			if (source == target)
+				return 0;
+			int flow = source < target ? flows[index(source, target)] : -flows[index(target, source)];
+			return Math.max(0, flow);
+		}
+
+		/**
+		 * Adds flow in direction from source to target; flow in opposite
+		 * direction is cancelled implicitly by the signed representation
+		 */
+		@Override
+		public void addEdgeFlow(int source, int target, int flowAdd) {
+			checkIndices(source, target);
+			if (source == target)
+				return;
+			if (source < target)
+				flows[index(source, target)] += flowAdd;
+			else
+				flows[index(target, source)] -= flowAdd;
+		}
+
+		/**
+		 * Sets flow in direction from source to target. Setting 0 only
+		 * removes flow going in this direction.
+		 */
+		@Override
+		public void setEdgeFlow(int source, int target, int flow) {
+			checkIndices(source, target);
+			if (flow<0)
+				throw new ArithmeticException("Flow cannot be negative");
+			if (source == target)
+				return;
+			int e = index(Math.min(source, target), Math.max(source, target));
+			int signedFlow = source < target ? flow : -flow;
+			if (flow > 0 || Integer.signum(flows[e]) == (source < target ? 1 : -1))
+				flows[e] = signedFlow;
+		}
+
+		@Override
+		public boolean isValidFlow() {
+			int errors = 0; //for counting possible errors
+			long[] balance = new long[numberOfNodes]; //incoming minus outgoing flow
+			for (int u = 0, e = 0; u < numberOfNodes; u++)
+				for (int v = u + 1; v < numberOfNodes; v++, e++) {
+					if (Math.abs(flows[e]) > capacities[e]) //flow must not exceed edge capacity
+						errors++;
+					balance[u] -= flows[e];
+					balance[v] += flows[e];
+				}
+			if (balance[source] != -balance[sink]) //outgoing flow from source must = incoming flow to sink
+				errors++;
+			for (int nodeIdx = 0; nodeIdx < numberOfNodes; nodeIdx++)
+				if (nodeIdx != source && nodeIdx != sink && balance[nodeIdx] != 0)
+					errors++;
+			return errors==0;
+		}
+
+		@Override
+		public void clear() {
+			Arrays.fill(flows, 0);
+		}
+
+		@Override
+		public int getTotalFlow() {
+			int totalFlow = 0;
+			for (int v = 0; v < numberOfNodes; v++)
+				totalFlow += getEdgeFlow(source, v);
+			return totalFlow;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder flowToStr = new StringBuilder();
+			for (int i = 0; i < numberOfNodes; i++)
+				for (int j = 0; j < numberOfNodes; j++)
+					if (getEdgeFlow(i, j)>0)
+						flowToStr.append(String.format("(%d, %d) (%d/%d)\n",
+								i+maxflowConstants.INDEX_OFFSET, j+maxflowConstants.INDEX_OFFSET,
+								getEdgeFlow(i, j), getEdgeCapacity(i,j)));
+			return flowToStr.toString();
+		}
+	}
+}